@@ -0,0 +1,95 @@
+package com.wira.graph;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.wira.graph.core.GlyphAtlas;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Currency;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares the time it takes to draw the values of a tooltip with
+ * {@link Canvas#drawText(String, float, float, Paint)} against a {@link GlyphAtlas} while
+ * scrubbing i.e. when the values change on every frame. The timings are printed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GlyphAtlasBenchmark {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 800;
+    private static final int FRAMES = 300;
+
+    @Test
+    public void benchmark() {
+        System.out.println("==================Glyph atlas benchmark==================");
+        final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setTypeface(Typeface.DEFAULT_BOLD);
+        final GlyphAtlas atlas = new GlyphAtlas();
+
+        for (int lines : new int[]{1, 4, 16}) {
+            for (float size : new float[]{24, 48}) {
+                paint.setTextSize(size);
+                final String[][] frames = frames(lines);
+
+                final long text = time(frames, canvas, paint, null);
+                final long glyphs = time(frames, canvas, paint, atlas);
+                System.out.println(lines + " lines at " + size + "px: drawText " + text / 1_000
+                        + "us/frame, atlas " + glyphs / 1_000 + "us/frame");
+            }
+        }
+        atlas.clear();
+        bitmap.recycle();
+    }
+
+    private static long time(@NonNull String[][] frames, @NonNull Canvas canvas,
+                             @NonNull Paint paint, GlyphAtlas atlas) {
+        //warm up, this also renders the atlas
+        draw(frames[0], canvas, paint, atlas);
+        final long start = System.nanoTime();
+        for (String[] frame : frames) {
+            draw(frame, canvas, paint, atlas);
+        }
+        return (System.nanoTime() - start) / frames.length;
+    }
+
+    private static void draw(@NonNull String[] frame, @NonNull Canvas canvas,
+                             @NonNull Paint paint, GlyphAtlas atlas) {
+        canvas.drawColor(Color.WHITE);
+        float y = paint.getTextSize();
+        for (String value : frame) {
+            if (atlas == null) canvas.drawText(value, 0, y, paint);
+            else atlas.drawText(canvas, value, 0, y, paint);
+            y += paint.getTextSize();
+        }
+    }
+
+    /**
+     * @return values formatted the way the tooltip formats them, different on every frame
+     */
+    @NonNull
+    private static String[][] frames(int lines) {
+        final Locale locale = Locale.getDefault();
+        final String symbol = Currency.getInstance(locale).getSymbol();
+        final Random random = new Random(lines);
+        final String[][] frames = new String[FRAMES][lines];
+        for (String[] frame : frames) {
+            for (int i = 0; i < lines; i++) {
+                frame[i] = String.format(locale, "%s%,.2f", symbol, random.nextFloat() * 100_000);
+            }
+        }
+        return frames;
+    }
+}
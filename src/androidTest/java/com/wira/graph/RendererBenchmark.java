@@ -0,0 +1,78 @@
+package com.wira.graph;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.wira.core.period.Period;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+/**
+ * Compares the time it takes to draw a plot with {@link GraphView#RENDERER_PATH} against
+ * {@link GraphView#RENDERER_VERTICES} at different numbers of points. The timings are printed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RendererBenchmark {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 800;
+    private static final int FRAMES = 30;
+
+    @Test
+    public void benchmark() {
+        System.out.println("==================Renderer benchmark==================");
+        for (int points : new int[]{1_000, 10_000, 100_000}) {
+            final GraphView view = view(points);
+            final Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(bitmap);
+
+            view.setRenderer(GraphView.RENDERER_PATH);
+            final long path = time(view, canvas);
+            view.setRenderer(GraphView.RENDERER_VERTICES);
+            final long vertices = time(view, canvas);
+
+            System.out.println(points + " points: path " + path / 1_000 + "us/frame, vertices "
+                    + vertices / 1_000 + "us/frame");
+            bitmap.recycle();
+        }
+    }
+
+    private static long time(@NonNull GraphView view, @NonNull Canvas canvas) {
+        //warm up
+        view.draw(canvas);
+        final long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            view.draw(canvas);
+        }
+        return (System.nanoTime() - start) / FRAMES;
+    }
+
+    @NonNull
+    private static GraphView view(int points) {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final GraphView view = new GraphView(context);
+        //the plots are timed as they're drawn once fully refined, not at a coarse level
+        view.setProgressive(false);
+        final Period period = Period.ofMonth();
+        final float last = period.getDuration() - 1;
+
+        final Random random = new Random(points);
+        final GraphView.Plot.Builder builder = new GraphView.Plot.Builder().setLabel("benchmark");
+        for (int i = 0; i < points; i++) {
+            builder.add(i * last / points, random.nextFloat() * 1_000);
+        }
+        view.initialise(GraphView.Graph.Builder.setPeriod(period).set(builder.build()).build());
+        view.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        view.layout(0, 0, WIDTH, HEIGHT);
+        return view;
+    }
+}
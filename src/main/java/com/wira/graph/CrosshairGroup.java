@@ -0,0 +1,75 @@
+package com.wira.graph;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Moves the crosshairs of several {@link GraphView}s together, e.g. of graphs stacked above one
+ * another over the same {@link com.wira.core.period.Period}. Scrubbing any member looks up the
+ * touched point and formats its date once, the other members are then given the x value of the
+ * point and only find their own points at it, in constant time for the indices of a period, and
+ * are redrawn within the same frame without recomputing their geometry. A double tap on any
+ * member removes the crosshairs of all of them.
+ * </p>
+ *
+ * <p>
+ * A view belongs to at most one group, joining a group leaves the previous one. The group holds
+ * on to its members so views that are discarded should leave it. The group must only be used on
+ * the main thread.
+ * </p>
+ */
+public class CrosshairGroup {
+    private final List<GraphView> members = new ArrayList<>();
+    private float x = Float.NaN;
+
+    public void join(@NonNull GraphView view) {
+        if (view.crosshairGroup == this) return;
+        if (view.crosshairGroup != null) view.crosshairGroup.leave(view);
+        view.crosshairGroup = this;
+        members.add(view);
+    }
+
+    public void leave(@NonNull GraphView view) {
+        if (view.crosshairGroup != this) return;
+        view.crosshairGroup = null;
+        members.remove(view);
+    }
+
+    /**
+     * Removes the crosshairs of all the members
+     */
+    public void clear() {
+        x = Float.NaN;
+        for (GraphView member : members) {
+            member.clearCrosshair();
+        }
+    }
+
+    /**
+     * Called by a member once it has looked up the points under a scrub
+     *
+     * @param x    the x value of the points
+     * @param date the formatted date of the points
+     */
+    void scrubbed(@NonNull GraphView source, float x, @NonNull String date) {
+        //a scrub within the same point leaves the other members as they are
+        if (x == this.x) return;
+        this.x = x;
+        for (GraphView member : members) {
+            if (member != source) member.crosshair(x, date);
+        }
+    }
+
+    /**
+     * Called by a member whose crosshair has been removed
+     */
+    void cleared(@NonNull GraphView source) {
+        x = Float.NaN;
+        for (GraphView member : members) {
+            if (member != source) member.clearCrosshair();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.wira.graph;
+
+import static android.graphics.Color.DKGRAY;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.ColorUtils;
+
+import com.wira.graph.core.StyleCache;
+import com.wira.graph.core.TextWidthCache;
+
+/**
+ * The styled attributes of a {@link GraphView} resolved once and shared by every graph inflated
+ * with the same theme, style and attributes.
+ * <p>
+ * The paints that a graph never changes are shared as they are, a graph that customizes one of
+ * them copies it first. The paints that a graph changes while drawing are prototypes that each
+ * graph copies. None of the paints may be modified.
+ * </p>
+ */
+final class GraphStyle {
+    private static final StyleCache<GraphStyle> CACHE = new StyleCache<>();
+
+    final float strokeWidth;
+    final float radius;
+    final float touch;
+    final int graphAreaHeight;
+    final int xLabelIndicatorHeight;
+    final float labelTextSize;
+    final float textSize;
+    final float elevation;
+    final int size;
+    final int height;
+
+    //shared
+    final Paint guidesPaint;
+    final Paint xAxisLabelsPaint;
+    final Paint xAxisPaint;
+    final Paint xLinePaint;
+    final TextPaint guidesTextPaint;
+    final TextPaint xLabelTextPaint;
+    final TextWidthCache xLabelWidths;
+
+    //prototypes
+    final Paint linePaint;
+    final Paint comparisonPaint;
+    final TextPaint textPaint;
+    final TextPaint tooltipTextPaint;
+
+    @NonNull
+    static GraphStyle obtain(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        return CACHE.get(context, attrs, defStyleAttr, () -> new GraphStyle(context, attrs, defStyleAttr));
+    }
+
+    private GraphStyle(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        final Resources res = context.getResources();
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GraphView, defStyleAttr, 0);
+        strokeWidth = a.getDimension(R.styleable.GraphView_graphStrokeWidth, res.getDimension(R.dimen.default_stroke_width));
+        radius = a.getDimension(R.styleable.GraphView_graphValuesRadius, res.getDimension(R.dimen.default_values_radius));
+        touch = a.getFloat(R.styleable.GraphView_graphTouch, -1);
+        graphAreaHeight = res.getDimensionPixelSize(R.dimen.default_graphArea_height);
+
+        xLabelIndicatorHeight = a.getDimensionPixelSize(R.styleable.GraphView_graphXAxisLabelIndicatorHeight, res.getDimensionPixelSize(R.dimen.default_graphXAxisLabelIndicatorHeight));
+        labelTextSize = a.getDimension(R.styleable.GraphView_graphLabelTextSize, res.getDimension(R.dimen.default_label_text_size));
+        textSize = a.getDimension(R.styleable.GraphView_graphTextSize, res.getDimension(R.dimen.default_textSize));
+        elevation = a.getDimension(R.styleable.GraphView_graphLabelElevation, res.getDimension(R.dimen.default_elevation));
+        final float clickedTextSize = a.getDimension(R.styleable.GraphView_graphClickedTextSize, res.getDimension(R.dimen.default_clickedTextSize));
+        final float guidesStroke = a.getDimension(R.styleable.GraphView_graphGuideStrokeWidth, res.getDimension(R.dimen.default_guideStrokeWidth));
+
+        guidesPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        guidesPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 30));
+        guidesPaint.setStyle(Paint.Style.STROKE);
+        guidesPaint.setStrokeWidth(guidesStroke);
+
+        xAxisLabelsPaint = new Paint(guidesPaint);
+        xAxisLabelsPaint.setColor(a.getDimensionPixelSize(R.styleable.GraphView_graphXLabelsIndicatorColor, DKGRAY));
+        xAxisLabelsPaint.setStrokeWidth(a.getDimensionPixelSize(R.styleable.GraphView_graphXLabelStrokeWidth, res.getDimensionPixelSize(R.dimen.default_xLabelStrokeWidth)));
+        xAxisLabelsPaint.setStyle(Paint.Style.STROKE);
+
+        linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        linePaint.setStrokeWidth(strokeWidth);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+
+        textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setStyle(Paint.Style.FILL_AND_STROKE);
+        textPaint.setTextAlign(Paint.Align.LEFT);
+        textPaint.setColor(Color.LTGRAY);
+        textPaint.setTextSize(20f);
+
+        xLabelTextPaint = new TextPaint(textPaint);
+        xLabelTextPaint.setTextAlign(Paint.Align.CENTER);
+        xLabelTextPaint.setColor(a.getColor(R.styleable.GraphView_graphXLabelTextColor, DKGRAY));
+        textPaint.setTextSize(a.getDimensionPixelSize(R.styleable.GraphView_graphLabelTextSize, R.dimen.default_label_text_size));
+
+        guidesTextPaint = new TextPaint(textPaint);
+        guidesTextPaint.setAntiAlias(true);
+        guidesTextPaint.setColor(ColorUtils.setAlphaComponent(DKGRAY, 200));
+        guidesTextPaint.setTextSize(textSize);
+
+        tooltipTextPaint = new TextPaint(textPaint);
+        tooltipTextPaint.setAntiAlias(true);
+        tooltipTextPaint.setTextSize(clickedTextSize);
+        tooltipTextPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 180));
+
+        xAxisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        xAxisPaint.setColor(Color.BLACK);
+        xAxisPaint.setStyle(Paint.Style.STROKE);
+        xAxisPaint.setStrokeWidth(a.getDimension(R.styleable.GraphView_graphXAxisWidth, res.getDimension(R.dimen.default_x_axis_width)));
+
+        xLinePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        xLinePaint.setStrokeWidth(a.getDimension(R.styleable.GraphView_graphShowStrokeWidth, res.getDimension(R.dimen.default_show_stroke_width)));
+        xLinePaint.setStyle(Paint.Style.STROKE);
+        xLinePaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, a.getInt(R.styleable.GraphView_graphAlpha, 75)));
+        final float dashWidth = a.getDimension(R.styleable.GraphView_graphDashWidth, res.getDimension(R.dimen.default_dashWidth)),
+                dashGap = a.getDimension(R.styleable.GraphView_graphDashGap, res.getDimension(R.dimen.default_dashGap));
+        //path effects are immutable, both paints share the one
+        final DashPathEffect dash = new DashPathEffect(new float[]{dashWidth, dashGap}, 0);
+        xLinePaint.setPathEffect(dash);
+
+        comparisonPaint = new Paint(linePaint);
+        comparisonPaint.setPathEffect(dash);
+
+        size = a.getInt(R.styleable.GraphView_graphSize, GraphView.NORMAL);
+        height = a.getInt(R.styleable.GraphView_graphHeight, GraphView.NONE);
+
+        a.recycle();
+
+        //the labels of the x-axis are measured once for all the graphs
+        xLabelWidths = new TextWidthCache(xLabelTextPaint);
+    }
+
+    /**
+     * @return true if the paint is shared among graphs and must be copied before it is changed
+     */
+    boolean isShared(@Nullable Paint paint) {
+        return paint == guidesPaint || paint == xAxisLabelsPaint || paint == xAxisPaint
+                || paint == xLinePaint || paint == guidesTextPaint || paint == xLabelTextPaint;
+    }
+}
@@ -0,0 +1,706 @@
+package com.wira.graph;
+
+import static android.graphics.Color.DKGRAY;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.DashPathEffect;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.ColorUtils;
+
+import com.wira.graph.GraphView.Coordinate;
+import com.wira.graph.GraphView.Graph;
+import com.wira.graph.GraphView.Plot;
+import com.wira.graph.core.Decimator;
+import com.wira.graph.core.NiceScale;
+import com.wira.graph.core.VertexRenderer;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A line-graph for high-rate live data that renders on its own thread into a {@link SurfaceView}
+ * rather than in {@link View#onDraw(Canvas)}, keeping the cost on the UI thread near zero
+ * regardless of the rate of the data.
+ * </p>
+ *
+ * <p>
+ * It's driven by the same {@link Graph} as the {@link GraphView}. Once a graph is handed over with
+ * {@link #initialise(Graph)} it belongs to the render thread, new points should then only be added
+ * through {@link #append(String, float, float)} which can be called from any thread.
+ * </p>
+ *
+ * <p>
+ * Frames are paced by the render thread's {@link Choreographer} and capped by
+ * {@link #setMaxFrameRate(int)}, no frame is drawn unless the data or the touch has changed. The
+ * points of each plot are aggregated into columns as they arrive, so neither adding a point nor
+ * drawing a frame costs more as the history of the data grows, see {@link Columns}.
+ * Rendering pauses whenever the surface is destroyed or the view isn't visible. Touch events are
+ * handed to the render thread through its message queue. The graph, the frame rate and the points
+ * given before the view is attached are handed over once its render thread has started.
+ * </p>
+ */
+public class GraphSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+    private static final String TAG = "GraphSurfaceView";
+
+    private static final int MSG_GRAPH = 0;
+    private static final int MSG_SURFACE = 1;
+    private static final int MSG_VISIBLE = 2;
+    private static final int MSG_SAMPLES = 3;
+    private static final int MSG_TOUCH = 4;
+    private static final int MSG_FRAME_RATE = 5;
+
+    private final Renderer renderer;
+    private final SampleQueue samples = new SampleQueue();
+    private HandlerThread thread;
+    private volatile Handler handler;
+    //kept so that they can be handed to the render thread whenever it's started
+    @Nullable
+    private Graph graph;
+    private int maxFrameRate;
+
+    public GraphSurfaceView(Context context) {
+        this(context, null);
+    }
+
+    public GraphSurfaceView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public GraphSurfaceView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GraphView, defStyleAttr, 0);
+        final float strokeWidth = a.getDimension(R.styleable.GraphView_graphStrokeWidth, getResources().getDimension(R.dimen.default_stroke_width));
+        final float textSize = a.getDimension(R.styleable.GraphView_graphTextSize, getResources().getDimension(R.dimen.default_textSize));
+        final float guidesStroke = a.getDimension(R.styleable.GraphView_graphGuideStrokeWidth, getResources().getDimension(R.dimen.default_guideStrokeWidth));
+        final float dashWidth = a.getDimension(R.styleable.GraphView_graphDashWidth, getResources().getDimension(R.dimen.default_dashWidth));
+        final float dashGap = a.getDimension(R.styleable.GraphView_graphDashGap, getResources().getDimension(R.dimen.default_dashGap));
+        a.recycle();
+
+        renderer = new Renderer(strokeWidth, textSize, guidesStroke, dashWidth, dashGap);
+        getHolder().addCallback(this);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_DISPLAY);
+        thread.start();
+        handler = new Handler(thread.getLooper(), renderer);
+
+        if (graph != null) send(MSG_GRAPH, 0, 0, graph);
+        if (maxFrameRate > 0) send(MSG_FRAME_RATE, maxFrameRate, 0, null);
+        //points appended while detached are waiting in the queue
+        send(MSG_SAMPLES, 0, 0, null);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        thread.quitSafely();
+        thread = null;
+        handler = null;
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        send(MSG_VISIBLE, visibility == VISIBLE ? 1 : 0, 0, null);
+    }
+
+    @Override
+    protected void onVisibilityChanged(@NonNull View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        send(MSG_VISIBLE, isShown() ? 1 : 0, 0, null);
+    }
+
+    /**
+     * Hands the graph over to the render thread. The graph shouldn't be modified afterwards
+     * other than through {@link #append(String, float, float)}.
+     */
+    public void initialise(@NonNull Graph graph) {
+        this.graph = graph;
+        send(MSG_GRAPH, 0, 0, graph);
+    }
+
+    /**
+     * Adds a point to the plot with the given label. This can be called from any thread, the
+     * points are applied by the render thread at the start of its next frame.
+     */
+    public void append(@NonNull String label, float x, float y) {
+        if (samples.offer(label, x, y)) {
+            send(MSG_SAMPLES, 0, 0, null);
+        }
+    }
+
+    /**
+     * Caps the rate at which frames are drawn, frames are otherwise drawn at the display's rate
+     */
+    @SuppressWarnings("unused")
+    public void setMaxFrameRate(int framesPerSecond) {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Invalid frame rate: " + framesPerSecond);
+        }
+        maxFrameRate = framesPerSecond;
+        send(MSG_FRAME_RATE, framesPerSecond, 0, null);
+    }
+
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+                send(MSG_TOUCH, Float.floatToIntBits(event.getX()), 0, null);
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                send(MSG_TOUCH, Float.floatToIntBits(Float.NaN), 0, null);
+                performClick();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    public void surfaceCreated(@NonNull SurfaceHolder holder) {
+        send(MSG_SURFACE, 0, 0, holder);
+    }
+
+    @Override
+    public void surfaceChanged(@NonNull SurfaceHolder holder, int format, int width, int height) {
+        send(MSG_SURFACE, width, height, holder);
+    }
+
+    @Override
+    public void surfaceDestroyed(@NonNull SurfaceHolder holder) {
+        final Handler handler = this.handler;
+        if (handler == null) return;
+
+        //the surface mustn't be drawn on once this returns, so wait for the render thread to let go
+        final CountDownLatch released = new CountDownLatch(1);
+        handler.obtainMessage(MSG_SURFACE, released).sendToTarget();
+        try {
+            released.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void send(int what, int arg1, int arg2, Object obj) {
+        final Handler handler = this.handler;
+        if (handler == null) return;
+
+        final Message message = handler.obtainMessage(what, obj);
+        message.arg1 = arg1;
+        message.arg2 = arg2;
+        message.sendToTarget();
+    }
+
+    /**
+     * Everything in here is only touched by the render thread
+     */
+    private final class Renderer implements Handler.Callback, Choreographer.FrameCallback {
+        private final float textSize;
+        private final NiceScale scale = new NiceScale(2, 3);
+        private final VertexRenderer vertices = new VertexRenderer();
+        private final RectF bounds = new RectF();
+        private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint guidesPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint crosshairPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+
+        private Graph graph;
+        private SurfaceHolder holder;
+        private int width;
+        private int height;
+        private boolean visible = true;
+        private boolean scheduled;
+        private boolean dirty;
+        private float touchX = Float.NaN;
+        private long minFrameInterval;
+        private long lastFrame;
+        private final Map<Plot, Columns> columns = new IdentityHashMap<>();
+        //the projected columns of a plot and their decimation, reused across frames
+        private float[] points = new float[0];
+        private float[] screen = new float[0];
+        private final float[] nearest = new float[2];
+
+        Renderer(float strokeWidth, float textSize, float guidesStroke, float dashWidth, float dashGap) {
+            this.textSize = textSize;
+            linePaint.setStrokeWidth(strokeWidth);
+            linePaint.setStyle(Paint.Style.STROKE);
+            linePaint.setStrokeCap(Paint.Cap.ROUND);
+            linePaint.setStrokeJoin(Paint.Join.ROUND);
+
+            guidesPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 30));
+            guidesPaint.setStyle(Paint.Style.STROKE);
+            guidesPaint.setStrokeWidth(guidesStroke);
+
+            crosshairPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 75));
+            crosshairPaint.setStyle(Paint.Style.STROKE);
+            crosshairPaint.setStrokeWidth(strokeWidth);
+            crosshairPaint.setPathEffect(new DashPathEffect(new float[]{dashWidth, dashGap}, 0));
+
+            textPaint.setColor(ColorUtils.setAlphaComponent(DKGRAY, 200));
+            textPaint.setTextSize(textSize);
+        }
+
+        @Override
+        public boolean handleMessage(@NonNull Message msg) {
+            switch (msg.what) {
+                case MSG_GRAPH:
+                    graph = (Graph) msg.obj;
+                    columns.clear();
+                    break;
+                case MSG_SURFACE:
+                    if (msg.obj instanceof CountDownLatch) {
+                        holder = null;
+                        ((CountDownLatch) msg.obj).countDown();
+                        return true;
+                    }
+                    holder = (SurfaceHolder) msg.obj;
+                    if (msg.arg1 > 0) {
+                        width = msg.arg1;
+                        height = msg.arg2;
+                    }
+                    break;
+                case MSG_VISIBLE:
+                    visible = msg.arg1 != 0;
+                    break;
+                case MSG_TOUCH:
+                    touchX = Float.intBitsToFloat(msg.arg1);
+                    break;
+                case MSG_FRAME_RATE:
+                    minFrameInterval = TimeUnit.SECONDS.toNanos(1) / msg.arg1;
+                    break;
+                case MSG_SAMPLES:
+                    break;
+                default:
+                    return false;
+            }
+            dirty = true;
+            schedule();
+            return true;
+        }
+
+        private void schedule() {
+            if (scheduled || holder == null || !visible || width == 0) return;
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            scheduled = false;
+            if (holder == null || !visible) return;
+            if (frameTimeNanos - lastFrame < minFrameInterval) {
+                schedule();
+                return;
+            }
+
+            if (graph != null && samples.drain(graph, this)) dirty = true;
+            if (!dirty) return;
+            dirty = false;
+            lastFrame = frameTimeNanos;
+
+            final Canvas canvas = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                    ? holder.lockHardwareCanvas()
+                    : holder.lockCanvas();
+            if (canvas == null) return;
+            try {
+                draw(canvas);
+            } finally {
+                holder.unlockCanvasAndPost(canvas);
+            }
+        }
+
+        private void draw(@NonNull Canvas c) {
+            c.drawColor(Color.WHITE);
+            if (graph == null || graph.plots().isEmpty()) return;
+
+            //live data changes the extremes so they're gathered from the plots on every frame
+            float minx = Float.MAX_VALUE, maxx = -Float.MAX_VALUE;
+            float miny = Float.MAX_VALUE, maxy = -Float.MAX_VALUE;
+            for (Plot plot : graph.plots()) {
+                minx = Math.min(minx, plot.getMinX());
+                maxx = Math.max(maxx, plot.getMaxX());
+                miny = Math.min(miny, plot.getMinY());
+                maxy = Math.max(maxy, plot.getMaxY());
+            }
+            scale.compute(miny, maxy);
+
+            final float padding = textSize;
+            bounds.set(getPaddingLeft() + padding * 3, getPaddingTop() + padding,
+                    width - getPaddingRight() - padding, height - getPaddingBottom() - padding);
+
+            final int save = c.save();
+            c.translate(bounds.left, bounds.bottom);
+
+            final float interval = bounds.height() / scale.intervals();
+            for (int i = 0; i <= scale.intervals(); i++) {
+                final float y = -i * interval;
+                c.drawLine(0, y, bounds.width(), y, guidesPaint);
+                final String label = GraphView.label(scale.tick(i));
+                c.drawText(label, -textPaint.measureText(label) - padding * .5f, y + textSize * .5f, textPaint);
+            }
+
+            final float rangeX = maxx - minx;
+            for (Plot plot : graph.plots()) {
+                linePaint.setColor(plot.getColor());
+                line(c, plot, minx, rangeX);
+            }
+
+            crosshair(c, minx, rangeX);
+            c.restoreToCount(save);
+        }
+
+        /**
+         * Adds a point that the plot has accepted to its columns
+         */
+        void added(@NonNull Plot plot, float x, float y) {
+            final Columns c = columns.get(plot);
+            //columns that haven't been sized yet are built from the plot's points when first drawn
+            if (c == null || c.capacity() == 0) return;
+            if (!c.add(x, y)) c.rebuild(plot, c.capacity());
+        }
+
+        /**
+         * Draws the line of the plot from its columns decimated to the width of the bounds, so
+         * that the cost of a frame doesn't grow with the history of the data
+         */
+        private void line(@NonNull Canvas c, @NonNull Plot plot, float minx, float rangeX) {
+            final float width = bounds.width(), height = bounds.height();
+            final int count = columns(plot).points(points);
+            if (count < 2) return;
+
+            final float sx = rangeX == 0 ? 0 : width / rangeX;
+            final float sy = scale.range() == 0 ? 0 : height / scale.range();
+            for (int i = 0; i < count; i++) {
+                points[2 * i] = (points[2 * i] - minx) * sx;
+                points[2 * i + 1] = -(points[2 * i + 1] - scale.min()) * sy;
+            }
+
+            final int columns = (int) Math.ceil(width);
+            final int capacity = Decimator.capacity(count, columns);
+            if (screen.length < capacity) screen = new float[capacity];
+            final int decimated = Decimator.decimate(points, count, 0, width, columns, screen);
+            vertices.drawLine(c, screen, decimated, linePaint);
+        }
+
+        /**
+         * @return the plot's columns, built afresh from its points when they're first drawn or the
+         * width of the bounds has changed
+         */
+        @NonNull
+        private Columns columns(@NonNull Plot plot) {
+            Columns c = columns.get(plot);
+            if (c == null) {
+                c = new Columns();
+                columns.put(plot, c);
+            }
+            //twice as many columns as pixels so that at least one column is drawn per pixel
+            final int capacity = 2 * Math.max(1, (int) Math.ceil(bounds.width()));
+            if (c.capacity() != capacity) c.rebuild(plot, capacity);
+            if (points.length < 2 * Columns.POINTS * capacity) {
+                points = new float[2 * Columns.POINTS * capacity];
+            }
+            return c;
+        }
+
+        private void crosshair(@NonNull Canvas c, float minx, float rangeX) {
+            if (Float.isNaN(touchX) || rangeX <= 0) return;
+
+            final float x = minx + (touchX - bounds.left) / bounds.width() * rangeX;
+            float drawingX = -1;
+            for (Plot plot : graph.plots()) {
+                if (!columns(plot).nearest(x, nearest)) continue;
+
+                final float px = nearest[0], py = nearest[1];
+                drawingX = (px - minx) / rangeX * bounds.width();
+                final float drawingY = -(py - scale.min()) / scale.range() * bounds.height();
+                dotPaint.setColor(plot.getColor());
+                c.drawCircle(drawingX, drawingY, linePaint.getStrokeWidth() * 2.2f, dotPaint);
+                c.drawText(GraphView.label(py), drawingX + textSize * .5f, drawingY - textSize * .5f, textPaint);
+            }
+            if (drawingX >= 0) {
+                c.drawLine(drawingX, 0, drawingX, -bounds.height(), crosshairPaint);
+            }
+        }
+    }
+
+    /**
+     * The points appended from any thread, waiting to be added to the plots by the render thread.
+     * The points are double buffered so that the lock is only held to swap the buffers.
+     */
+    private static final class SampleQueue {
+        private String[] labels = new String[64];
+        private float[] xs = new float[64];
+        private float[] ys = new float[64];
+        private int size;
+
+        private String[] drainLabels = new String[64];
+        private float[] drainXs = new float[64];
+        private float[] drainYs = new float[64];
+
+        /**
+         * @return true if the queue was empty i.e. the render thread needs to be woken up
+         */
+        synchronized boolean offer(@NonNull String label, float x, float y) {
+            if (size == xs.length) {
+                final int capacity = size * 2;
+                final String[] l = new String[capacity];
+                final float[] x1 = new float[capacity], y1 = new float[capacity];
+                System.arraycopy(labels, 0, l, 0, size);
+                System.arraycopy(xs, 0, x1, 0, size);
+                System.arraycopy(ys, 0, y1, 0, size);
+                labels = l;
+                xs = x1;
+                ys = y1;
+            }
+            labels[size] = label;
+            xs[size] = x;
+            ys[size] = y;
+            return size++ == 0;
+        }
+
+        /**
+         * Adds the queued points to the plots of the graph and to the renderer's columns
+         *
+         * @return true if any point was added
+         */
+        boolean drain(@NonNull Graph graph, @NonNull Renderer renderer) {
+            final int count;
+            synchronized (this) {
+                count = size;
+                if (count == 0) return false;
+
+                final String[] l = labels;
+                final float[] x = xs, y = ys;
+                labels = drainLabels;
+                xs = drainXs;
+                ys = drainYs;
+                drainLabels = l;
+                drainXs = x;
+                drainYs = y;
+                size = 0;
+            }
+
+            for (int i = 0; i < count; i++) {
+                final Plot plot = graph.plot(drainLabels[i]);
+                drainLabels[i] = null;
+                if (plot == null) continue;
+
+                //a point at an x value the plot already has is ignored by it
+                final int version = plot.version();
+                plot.add(drainXs[i], drainYs[i]);
+                if (plot.version() != version) renderer.added(plot, drainXs[i], drainYs[i]);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * The points of a plot aggregated into columns of equal width along x. Each column keeps its
+     * first, lowest, highest and last point (M4 aggregation, see
+     * {@link com.wira.graph.core.Decimator}). A point beyond the last column merges the columns in
+     * pairs, doubling their width, so adding a point takes constant time on average and the
+     * columns are never rebuilt from the history as the data grows. They're only rebuilt when the
+     * number of columns changes or a point arrives before the first one.
+     */
+    private static final class Columns {
+        //the points kept per column
+        static final int POINTS = 4;
+        //the first, the lowest, the highest and the last point of each column as x, y pairs
+        private static final int STRIDE = 2 * POINTS;
+
+        private float[] columns = new float[0];
+        private int capacity;
+        //the columns after the last one that's been filled are empty
+        private int used;
+        private float start = Float.NaN;
+        private float width;
+
+        int capacity() {
+            return capacity;
+        }
+
+        /**
+         * Aggregates the plot's points afresh into the given number of columns, the points then
+         * span half of them leaving the rest to grow into
+         */
+        void rebuild(@NonNull Plot plot, int capacity) {
+            this.capacity = capacity;
+            if (columns.length < STRIDE * capacity) columns = new float[STRIDE * capacity];
+            Arrays.fill(columns, 0, STRIDE * capacity, Float.NaN);
+            used = 0;
+            start = Float.NaN;
+            width = 0;
+
+            final NavigableSet<Coordinate> points = plot.coordinates();
+            if (!points.isEmpty()) {
+                start = points.first().x;
+                width = (points.last().x - start) / Math.max(1, capacity / 2);
+            }
+            for (Coordinate point : points) {
+                add(point.x, point.y);
+            }
+        }
+
+        /**
+         * @return false if the point lies before the first column, the columns then have to be
+         * rebuilt
+         */
+        boolean add(float x, float y) {
+            if (Float.isNaN(start)) start = x;
+            if (x < start) return false;
+            if (width == 0 && x > start) width = (x - start) / Math.max(1, capacity / 2);
+
+            int column = column(x);
+            while (column >= capacity) {
+                merge();
+                column = column(x);
+            }
+            put(column, x, y);
+            used = Math.max(used, column + 1);
+            return true;
+        }
+
+        private int column(float x) {
+            return width == 0 ? 0 : (int) ((x - start) / width);
+        }
+
+        private void put(int column, float x, float y) {
+            final int o = STRIDE * column;
+            final float[] c = columns;
+            if (Float.isNaN(c[o])) {
+                for (int i = 0; i < POINTS; i++) {
+                    c[o + 2 * i] = x;
+                    c[o + 2 * i + 1] = y;
+                }
+                return;
+            }
+            if (x < c[o]) set(o, x, y);
+            if (y < c[o + 3]) set(o + 2, x, y);
+            if (y > c[o + 5]) set(o + 4, x, y);
+            if (x > c[o + 6]) set(o + 6, x, y);
+        }
+
+        private void set(int o, float x, float y) {
+            columns[o] = x;
+            columns[o + 1] = y;
+        }
+
+        /**
+         * Doubles the width of the columns by merging them in pairs into the first half
+         */
+        private void merge() {
+            width *= 2;
+            for (int i = 0; i < used; i += 2) {
+                final int target = STRIDE * (i / 2);
+                //the target has already been read as it comes before the pair
+                if (target != STRIDE * i) System.arraycopy(columns, STRIDE * i, columns, target, STRIDE);
+                if (i + 1 >= used) continue;
+                final int o = STRIDE * (i + 1);
+                if (Float.isNaN(columns[o])) continue;
+                for (int p = 0; p < POINTS; p++) {
+                    put(i / 2, columns[o + 2 * p], columns[o + 2 * p + 1]);
+                }
+            }
+            final int merged = (used + 1) / 2;
+            Arrays.fill(columns, STRIDE * merged, STRIDE * capacity, Float.NaN);
+            used = merged;
+        }
+
+        /**
+         * Writes the points kept by the columns ordered by x, each once
+         *
+         * @param out receives the interleaved points, it holds at least
+         *            {@code 2 * POINTS * capacity()} values
+         * @return the number of points
+         */
+        int points(@NonNull float[] out) {
+            int n = 0;
+            final float[] c = columns;
+            for (int column = 0; column < used; column++) {
+                final int o = STRIDE * column;
+                if (Float.isNaN(c[o])) continue;
+                //the points are told apart by their x values which are unique to a plot
+                final int low = c[o + 2] <= c[o + 4] ? o + 2 : o + 4;
+                final int high = low == o + 2 ? o + 4 : o + 2;
+                n = emit(out, n, o);
+                if (c[low] != c[o]) n = emit(out, n, low);
+                if (c[high] != c[low] && c[high] != c[o]) n = emit(out, n, high);
+                if (c[o + 6] != c[high] && c[o + 6] != c[low] && c[o + 6] != c[o]) n = emit(out, n, o + 6);
+            }
+            return n;
+        }
+
+        private int emit(@NonNull float[] out, int n, int o) {
+            out[2 * n] = columns[o];
+            out[2 * n + 1] = columns[o + 1];
+            return n + 1;
+        }
+
+        /**
+         * Finds the kept point closest to x among those of the nearest filled column
+         *
+         * @param out receives the x and y of the point
+         * @return false if there are no points
+         */
+        boolean nearest(float x, @NonNull float[] out) {
+            if (used == 0) return false;
+            final int column = Math.max(0, Math.min(used - 1, x < start ? 0 : column(x)));
+            for (int d = 0; d < used; d++) {
+                boolean found = false;
+                float best = Float.MAX_VALUE;
+                for (int side = -1; side <= 1; side += 2) {
+                    final int candidate = column + side * d;
+                    if (candidate < 0 || candidate >= used) continue;
+                    final int o = STRIDE * candidate;
+                    if (Float.isNaN(columns[o])) continue;
+                    for (int p = 0; p < POINTS; p++) {
+                        final float distance = Math.abs(columns[o + 2 * p] - x);
+                        if (distance >= best) continue;
+                        best = distance;
+                        out[0] = columns[o + 2 * p];
+                        out[1] = columns[o + 2 * p + 1];
+                        found = true;
+                    }
+                }
+                if (found) return true;
+            }
+            return false;
+        }
+    }
+}
@@ -10,18 +10,18 @@ import static android.graphics.Color.MAGENTA;
 import static android.graphics.Color.RED;
 import static android.graphics.Color.YELLOW;
 import static java.lang.Math.abs;
-import static java.lang.Math.ceil;
-import static java.lang.Math.pow;
 import static java.lang.Math.round;
 import static java.lang.String.format;
 
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.Resources;
-import android.content.res.TypedArray;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
 import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
@@ -29,24 +29,41 @@ import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
 import android.graphics.Typeface;
+import android.os.Build;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.util.LruCache;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.Window;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.graphics.ColorUtils;
 
 import com.google.android.material.card.MaterialCardView;
-import com.wira.core.period.ChronoUnit;
 import com.wira.core.period.Period;
+import com.wira.graph.core.BitmapPool;
+import com.wira.graph.core.Decimator;
+import com.wira.graph.core.DensityBuffer;
+import com.wira.graph.core.GeometryPool;
+import com.wira.graph.core.GlyphAtlas;
+import com.wira.graph.core.LineTransition;
+import com.wira.graph.core.NiceScale;
+import com.wira.graph.core.QualityController;
+import com.wira.graph.core.RenderExecutor;
+import com.wira.graph.core.ScrubMetrics;
 import com.wira.graph.core.ShadowRenderer;
+import com.wira.graph.core.TrendStatistics;
+import com.wira.graph.core.VertexRenderer;
+import com.wira.graph.core.XAxisTicks;
 
 import org.jetbrains.annotations.Contract;
 
@@ -60,14 +77,19 @@ import java.util.Collections;
 import java.util.Currency;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -127,10 +149,36 @@ import timber.log.Timber;
 public class GraphView extends View {
 
     private static final int SPACE = 4;
+    //The rows of a column of the key, further plots are laid out in the next column
+    private static final int KEY_ROWS = 3;
     public static final String FORMAT = "%.1f%s";
+    //The most fraction digits the labels of the y-axis are written with
+    private static final int MAX_FRACTION_DIGITS = 6;
     private static final float COS_45 = (float) Math.cos(Math.toRadians(45));
-
-    private static final int NORMAL = 0;
+    //The width of the selected plot's line relative to the others
+    private static final float SELECTED_STROKE = 1.5f;
+    //The off-screen bitmaps that are kept around for reuse
+    private static final long POOL_BYTES = 16L << 20;
+    //The most points a line is resampled to during a transition
+    private static final int MAX_TRANSITION_POINTS = 512;
+    private static final long DEFAULT_TRANSITION_DURATION = 300;
+    //Plots with more points are drawn progressively, see #setProgressive(boolean)
+    private static final int PROGRESSIVE_POINTS = 16384;
+    //How many of its points a progressively drawn plot is first built from
+    private static final int COARSE_POINTS = 512;
+    //Half of a 60Hz frame, the rest of the frame is left to everything else that's drawn
+    private static final long DEFAULT_FRAME_BUDGET_MILLIS = 8;
+    private static final int QUALITY_WINDOW = 30;
+    //How long the graph is left undrawn before its quality is raised
+    private static final long QUALITY_IDLE_MILLIS = 1000;
+    private static final int FLAT_AREA_ALPHA = 40;
+    //How far ahead a scrub is extrapolated, roughly the time until the frame is displayed
+    private static final float SCRUB_PREDICTION_MILLIS = 8;
+    private static final int TOOLTIP_CACHE_SIZE = 64;
+    //From sparse to dense
+    private static final int[] DENSITY_RAMP = DensityBuffer.ramp(0x400000FF, 0xC000FFFF, 0xE0FFFF00, 0xFFFF0000);
+
+    static final int NORMAL = 0;
     private static final int MINI = 1;
     private static final int CUSTOM = 2;
 
@@ -138,6 +186,26 @@ public class GraphView extends View {
     public static final int BIG = 0;
     public static final int SMALL = 1;
 
+    /**
+     * Draws the plots as anti-aliased paths, this is the default
+     */
+    public static final int RENDERER_PATH = 0;
+    /**
+     * Draws the plots' lines as segments and their areas as triangle strips of decimated points
+     */
+    public static final int RENDERER_VERTICES = 1;
+    /**
+     * Rasterizes each plot into its own bitmap on a background thread and composites the bitmaps,
+     * a plot is only rasterized again when it or the bounds change. This suits many plots at the
+     * cost of a bitmap the size of the graph area per plot.
+     */
+    public static final int RENDERER_LAYERS = 2;
+    /**
+     * Draws the plots as a single image of how many lines cross each pixel rather than as
+     * individual lines, for hundreds to thousands of plots. The key isn't drawn in this mode.
+     */
+    public static final int RENDERER_DENSITY = 3;
+
     private final int graphAreaHeight;
     private final int labelGraphSpace = 40;
     private final int size;
@@ -145,12 +213,7 @@ public class GraphView extends View {
     private final float diameter;
     private final float elevation;
     private final float labelTextSize;
-    /**
-     * The Maximum y-axis raw value
-     */
-    private float maximum = 0;
     private final float padding;
-    private float previousMax = Float.NaN;
     private final float strokeWidth;
     private final float textSize;
     private final int xLabelIndicatorHeight;
@@ -163,29 +226,135 @@ public class GraphView extends View {
     private final AtomicInteger width = new AtomicInteger();
     private final AtomicInteger columnHeight = new AtomicInteger();
     private final AtomicInteger rowHeight = new AtomicInteger();
+    //The specs of the last measure pass, the size is only computed again when they change
+    private boolean measured;
+    private int measuredWidthSpec;
+    private int measuredHeightSpec;
+    private float rowTextSize = -1;
+    //The card the height of a SMALL graph is derived from and the height of what surrounds it
+    @Nullable
+    private ViewGroup containerCard;
+    private int containerHeight = -1;
+    private int containerInset = -1;
     private final AtomicReference<String> selectedKey = new AtomicReference<>();
     private final AtomicReference<Plot> graph = new AtomicReference<>();
 
-    private final List<Best> bests = new ArrayList<>();
+    //The laid out tooltips of the points that have been touched, keyed by the indices of the points
+    @Nullable
+    private LruCache<Integer, Tooltip> tooltips;
+    private final RectF tooltipsBounds = new RectF();
+    private long tooltipsVersion;
+    private int tooltipsScale = -1;
+    private Locale tooltipsLocale;
+    private int[] tooltipIndices = new int[0];
+    private Tooltip tooltip;
+    //The labels of the plots that have been hidden from the key
+    private final Set<String> hidden = new HashSet<>();
+    //The area of each entry of the key, which toggles the plot's visibility when tapped
+    private final List<RectF> keyBounds = new ArrayList<>();
+    private final List<String> keyLabels = new ArrayList<>();
     private final List<String> labels = new ArrayList<>();
-    private final List<String> tLabels = new ArrayList<>();
+    private int labelsVersion = -1;
+    private int labelsWidth;
 
+    /**
+     * The y-axis, guides are drawn at its ticks
+     */
+    private final NiceScale scale = new NiceScale(2, 3);
     private final Coordinate multiplier = new Coordinate(0, 0);
-    private final Coordinate touchedVal = new Coordinate(0, 0);
-
-    private final LinkedList<XAxisLabel> xAxisLabels = new LinkedList<>();
+    /**
+     * Maps the unit coordinates of the plots' geometry to the graph area
+     */
+    private final Matrix geometry = new Matrix();
+    private int renderer = RENDERER_PATH;
+    private final VertexRenderer vertexRenderer = new VertexRenderer();
+    private final Map<String, Layer> layers = new HashMap<>();
+    private BitmapPool bitmapPool;
+    //The density of the plots that have been rasterized and the versions they were rasterized at
+    private final Map<Plot, Integer> densityVersions = new IdentityHashMap<>();
+    private DensityBuffer density;
+    private DensityBuffer[] densityPartials = new DensityBuffer[0];
+    private int[] densityPixels = new int[0];
+    private Bitmap densityBitmap;
+    private int densityLayout;
+    private int densityGeneration;
+    private boolean densityPending;
+
+    //Animates the plots from one dataset to the next, see #transitionFrom()
+    private final LineTransition transition = new LineTransition();
+    private final Path transitionArea = new Path();
+    private final Map<String, Integer> transitionSlots = new HashMap<>();
+    private final Choreographer.FrameCallback transitionCallback = this::onTransitionFrame;
+    private float[] transitionPoints = new float[0];
+    private float[] transitionFrame = new float[0];
+    private long transitionDuration = DEFAULT_TRANSITION_DURATION;
+    private long transitionStart;
+    private float transitionProgress;
+    private boolean transitioning;
+    private float transitionMin;
+    private float transitionRange;
+
+    //The latest position of a scrub, the lookup is done once per frame, see #scrub(MotionEvent)
+    private final Choreographer.FrameCallback scrubCallback = this::onScrubFrame;
+    private final ScrubMetrics scrubMetrics = new ScrubMetrics();
+    private float scrubX;
+    private long scrubEventTime;
+    private boolean scrubScheduled;
+
+    //Draws the numbers of the tooltip from pre-rendered glyphs when enabled, null otherwise
+    @Nullable
+    private GlyphAtlas glyphAtlas;
+    //Counts the changes of the geometry of all the plots i.e. of the bounds or the ranges
+    private int layersLayout;
+    //The bounds, the x range and the scale's version the geometry was last laid out for
+    private final float[] layoutKey = new float[8];
+    private int layoutScale = -1;
+
+    //Builds finer levels of the plots that are drawn progressively, see #refine(int)
+    private boolean progressive = true;
+    @Nullable
+    private Future<?> refinement;
+    private int refinementGeneration;
+
+    //Lowers the quality of the drawing while it's too slow, see #setFrameBudget(long)
+    private final QualityController quality =
+            new QualityController(DEFAULT_FRAME_BUDGET_MILLIS * 1_000_000L, QUALITY_WINDOW);
+    private final Runnable qualityIdle = this::onQualityIdle;
+    @Nullable
+    private QualityController.Listener qualityListener;
+    private boolean gesturing;
+    //The window whose frame metrics are timed rather than onDraw(Canvas) where they're reported,
+    //see #observeFrameMetrics()
+    @Nullable
+    private Window metricsWindow;
+    @Nullable
+    private Window.OnFrameMetricsAvailableListener frameMetricsListener;
+    private boolean drawnSinceMetrics;
+    //the tooltip's box and the crosshair at the lowest quality, created when first drawn
+    @Nullable
+    private Paint tooltipBoxPaint;
+    @Nullable
+    private Paint solidXLine;
 
     private final Paint areaPaint;
+    private final Paint comparisonAreaPaint;
+    private final Paint comparisonPaint;
     private final Paint linePaint;
     private final Paint cPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-    private final Paint mGuidesPaint;
-    private final Paint xAxisLabelsPaint = new Paint();
+    //shared with the other graphs of the same style until customized, see #own(Paint)
+    private Paint mGuidesPaint;
+    private final Paint xAxisLabelsPaint;
     private final Paint mXAxisPaint;
     private final Paint mXLine;
-    private final TextPaint cTextPaint;
-    private final TextPaint gTextPaint;
+    //created when first touched, graphs that aren't NORMAL are never touched
+    @Nullable
+    private TextPaint cTextPaint;
+    private TextPaint gTextPaint;
     private final TextPaint mTextPaint;
-    private final TextPaint mXLabelTextPaint;
+    private TextPaint mXLabelTextPaint;
+    private final GraphStyle style;
+    @Nullable
+    private XAxisTicks xAxisTicks;
 
     private Graph data = null;
 
@@ -196,15 +365,19 @@ public class GraphView extends View {
     private final RectF columnBounds = new RectF();
     private final RectF indicator = new RectF();
     private final RectF mRect = new RectF();
-    private final RectF rect = new RectF();
     private final RectF rowBounds = new RectF();
-    private final RectF tRectF = new RectF();
     private final RectF weirdBounds = new RectF();
-    private final ShadowRenderer s = new ShadowRenderer();
+    @Nullable
+    private ShadowRenderer s;
 
     private CompareListener listener;
+    private CompareListener comparedListener;
+    private long comparedVersion = -1;
     private OnDataChangedListener dataListener;
-    private final GestureDetector detector;
+    @Nullable
+    private GestureDetector detector;
+    @Nullable
+    CrosshairGroup crosshairGroup;
 
     public GraphView(Context context) {
         this(context, null);
@@ -224,87 +397,41 @@ public class GraphView extends View {
                 getPaddingBottom() + internalPadding
         );
 
-        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GraphView, defStyleAttr, 0);
-        strokeWidth = a.getDimension(R.styleable.GraphView_graphStrokeWidth, getResources().getDimension(R.dimen.default_stroke_width));
-        radius = a.getDimension(R.styleable.GraphView_graphValuesRadius, getResources().getDimension(R.dimen.default_values_radius));
+        //the attributes are resolved once for all the graphs sharing them, see GraphStyle
+        style = GraphStyle.obtain(context, attrs, defStyleAttr);
+        strokeWidth = style.strokeWidth;
+        radius = style.radius;
         padding = calcPadding(radius);
-        touch = a.getFloat(R.styleable.GraphView_graphTouch, -1);
-        graphAreaHeight = getResources().getDimensionPixelSize(R.dimen.default_graphArea_height);
+        touch = style.touch;
+        graphAreaHeight = style.graphAreaHeight;
 
-        xLabelIndicatorHeight = a.getDimensionPixelSize(R.styleable.GraphView_graphXAxisLabelIndicatorHeight, getResources().getDimensionPixelSize(R.dimen.default_graphXAxisLabelIndicatorHeight));
-        labelTextSize = a.getDimension(R.styleable.GraphView_graphLabelTextSize, getResources().getDimension(R.dimen.default_label_text_size));
+        xLabelIndicatorHeight = style.xLabelIndicatorHeight;
+        labelTextSize = style.labelTextSize;
         diameter = labelTextSize;
-        textSize = a.getDimension(R.styleable.GraphView_graphTextSize, getResources().getDimension(R.dimen.default_textSize));
-        elevation = a.getDimension(R.styleable.GraphView_graphLabelElevation, getResources().getDimension(R.dimen.default_elevation));
-        final float clickedTextSize = a.getDimension(R.styleable.GraphView_graphClickedTextSize, getResources().getDimension(R.dimen.default_clickedTextSize));
-        final float guidesStroke = a.getDimension(R.styleable.GraphView_graphGuideStrokeWidth, getResources().getDimension(R.dimen.default_guideStrokeWidth));
-
-        mGuidesPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mGuidesPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 30));
-        mGuidesPaint.setStyle(Paint.Style.STROKE);
-        mGuidesPaint.setStrokeWidth(guidesStroke);
-
-
-        xAxisLabelsPaint.set(mGuidesPaint);
-        xAxisLabelsPaint.setColor(a.getDimensionPixelSize(R.styleable.GraphView_graphXLabelsIndicatorColor, DKGRAY));
-        xAxisLabelsPaint.setStrokeWidth(a.getDimensionPixelSize(R.styleable.GraphView_graphXLabelStrokeWidth, getResources().getDimensionPixelSize(R.dimen.default_xLabelStrokeWidth)));
-        xAxisLabelsPaint.setStyle(Paint.Style.STROKE);
-
-        linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        linePaint.setStrokeWidth(strokeWidth);
-        linePaint.setStyle(Paint.Style.STROKE);
-        linePaint.setStrokeCap(Paint.Cap.ROUND);
-        linePaint.setStrokeJoin(Paint.Join.ROUND);
-
-
-        mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
-        mTextPaint.setStyle(Paint.Style.FILL_AND_STROKE);
-        mTextPaint.setTextAlign(Paint.Align.LEFT);
-        mTextPaint.setColor(Color.LTGRAY);
-        mTextPaint.setTextSize(20f);
-
-        mXLabelTextPaint = new TextPaint(mTextPaint);
-        mXLabelTextPaint.setTextAlign(Paint.Align.CENTER);
-        mXLabelTextPaint.setColor(a.getColor(R.styleable.GraphView_graphXLabelTextColor, DKGRAY));
-        mTextPaint.setTextSize(a.getDimensionPixelSize(R.styleable.GraphView_graphLabelTextSize, R.dimen.default_label_text_size));
-
-        gTextPaint = new TextPaint(mTextPaint);
-        gTextPaint.setAntiAlias(true);
-        gTextPaint.setColor(ColorUtils.setAlphaComponent(DKGRAY, 200));
-        gTextPaint.setTextSize(textSize);
-
-        cTextPaint = new TextPaint(mTextPaint);
-        cTextPaint.setAntiAlias(true);
-        cTextPaint.setTextSize(clickedTextSize);
-        cTextPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 180));
-
-        mXAxisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mXAxisPaint.setColor(Color.BLACK);
-        mXAxisPaint.setStyle(Paint.Style.STROKE);
-        mXAxisPaint.setStrokeWidth(a.getDimension(R.styleable.GraphView_graphXAxisWidth, getResources().getDimension(R.dimen.default_x_axis_width)));
-
-        mXLine = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mXLine.setStrokeWidth(a.getDimension(R.styleable.GraphView_graphShowStrokeWidth, getResources().getDimension(R.dimen.default_show_stroke_width)));
-        mXLine.setStyle(Paint.Style.STROKE);
-        mXLine.setColor(
-                ColorUtils.
-                        setAlphaComponent(
-                                Color.BLACK,
-                                a.getInt(R.styleable.GraphView_graphAlpha, 75)
-                        )
-        );
-        float dashWidth = a.getDimension(R.styleable.GraphView_graphDashWidth, getResources().getDimension(R.dimen.default_dashWidth)),
-                dashGap = a.getDimension(R.styleable.GraphView_graphDashGap, getResources().getDimension(R.dimen.default_dashGap));
-        mXLine.setPathEffect(new DashPathEffect(new float[]{dashWidth, dashGap}, 0));
-
-        size = a.getInt(R.styleable.GraphView_graphSize, NORMAL);
-        theHeight = a.getInt(R.styleable.GraphView_graphHeight, NONE);
-
-        a.recycle();
+        textSize = style.textSize;
+        elevation = style.elevation;
+
+        mGuidesPaint = style.guidesPaint;
+        xAxisLabelsPaint = style.xAxisLabelsPaint;
+        mXAxisPaint = style.xAxisPaint;
+        mXLine = style.xLinePaint;
+        gTextPaint = style.guidesTextPaint;
+        mXLabelTextPaint = style.xLabelTextPaint;
+
+        //these are changed while drawing so each graph has its own
+        linePaint = new Paint(style.linePaint);
+        mTextPaint = new TextPaint(style.textPaint);
+        comparisonPaint = new Paint(style.comparisonPaint);
+        comparisonAreaPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        comparisonAreaPaint.setStyle(Paint.Style.FILL);
+
+        size = style.size;
+        theHeight = style.height;
 
-        detector = new GestureDetector(context, new GestureListener());
         areaPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
         areaPaint.setStyle(Paint.Style.FILL);
+
+        quality.setListener(this::onQualityChanged);
     }
 
     @SuppressWarnings("unused")
@@ -350,6 +477,8 @@ public class GraphView extends View {
     @SuppressWarnings("unused")
     public void setCompareListener(CompareListener listener) {
         this.listener = listener;
+        compare();
+        super.invalidate();
     }
 
     @SuppressWarnings("unused")
@@ -357,24 +486,177 @@ public class GraphView extends View {
         dataListener = listener;
     }
 
+    /**
+     * Selects how the plots are drawn
+     *
+     * @param renderer one of {@link #RENDERER_PATH}, {@link #RENDERER_VERTICES},
+     *                 {@link #RENDERER_LAYERS} or {@link #RENDERER_DENSITY}
+     */
+    @SuppressWarnings("unused")
+    public void setRenderer(int renderer) {
+        if (renderer < RENDERER_PATH || renderer > RENDERER_DENSITY) {
+            throw new IllegalArgumentException("Unknown renderer: " + renderer);
+        }
+        if (this.renderer == renderer) return;
+        if (this.renderer == RENDERER_LAYERS) releaseLayers();
+        if (this.renderer == RENDERER_DENSITY) releaseDensity();
+        final boolean densityChanged = this.renderer == RENDERER_DENSITY || renderer == RENDERER_DENSITY;
+        this.renderer = renderer;
+        if (data != null) {
+            //the key isn't drawn over a density plot so the graph area changes
+            if (densityChanged) update();
+            else generatePath();
+        }
+        super.invalidate();
+    }
+
+    /**
+     * Sets whether plots of more than {@link #PROGRESSIVE_POINTS} points are drawn progressively,
+     * which they are by default. Such a plot is first drawn from a few hundred of its points so
+     * that the graph is drawn without waiting for the whole of its line to be built, finer levels
+     * are then built in the background and drawn as they're ready until the line is as detailed
+     * as the graph area can show.
+     */
+    @SuppressWarnings("unused")
+    public void setProgressive(boolean progressive) {
+        if (this.progressive == progressive) return;
+        this.progressive = progressive;
+        if (data != null) generatePath();
+        super.invalidate();
+    }
+
+    /**
+     * Sets how long drawing the graph may take on average. The time is measured over the last
+     * {@link #QUALITY_WINDOW} frames, while it's over the budget the graph is drawn at a lower
+     * quality one level at a time, see {@link QualityController}. The quality is raised again one
+     * level at a time once the graph hasn't been drawn for a while. From Android N on the time is
+     * taken from the frame metrics of the window, i.e. the recording, syncing and issuing of the
+     * drawing commands of the frames the graph is drawn in, otherwise only the time of recording
+     * the graph's drawing is measured.
+     */
+    @SuppressWarnings("unused")
+    public void setFrameBudget(long millis) {
+        if (millis <= 0) {
+            throw new IllegalArgumentException("Invalid frame budget: " + millis);
+        }
+        quality.setBudget(millis * 1_000_000L);
+    }
+
+    /**
+     * @return the quality the graph is drawn at, one of the QUALITY constants of
+     * {@link QualityController}
+     */
+    @SuppressWarnings("unused")
+    public int getQuality() {
+        return quality.quality();
+    }
+
+    /**
+     * Sets the listener notified whenever the quality the graph is drawn at changes
+     */
+    @SuppressWarnings("unused")
+    public void setOnQualityChangedListener(@Nullable QualityController.Listener listener) {
+        qualityListener = listener;
+    }
+
+    /**
+     * Sets how long the plots take to move to new data passed to {@link #initialise(Graph)}
+     *
+     * @param millis the duration of the transition, zero disables it
+     */
+    @SuppressWarnings("unused")
+    public void setTransitionDuration(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Invalid duration: " + millis);
+        }
+        transitionDuration = millis;
+    }
+
+    /**
+     * Sets the color of the guides drawn at the ticks of the y-axis
+     */
+    @SuppressWarnings("unused")
+    public void setGuideColor(int color) {
+        mGuidesPaint = own(mGuidesPaint);
+        mGuidesPaint.setColor(color);
+        super.invalidate();
+    }
+
+    /**
+     * Sets the color of the labels of both the x-axis and the y-axis
+     */
+    @SuppressWarnings("unused")
+    public void setAxisLabelColor(int color) {
+        gTextPaint = own(gTextPaint);
+        gTextPaint.setColor(color);
+        mXLabelTextPaint = own(mXLabelTextPaint);
+        mXLabelTextPaint.setColor(color);
+        super.invalidate();
+    }
+
+    /**
+     * @return the paint if it belongs to this graph alone, a copy of it if it's shared
+     */
+    @NonNull
+    private <P extends Paint> P own(@NonNull P paint) {
+        if (!style.isShared(paint)) return paint;
+        @SuppressWarnings("unchecked") final P copy = (P) (paint instanceof TextPaint
+                ? new TextPaint(paint)
+                : new Paint(paint));
+        return copy;
+    }
+
+    /**
+     * Draws the values of the tooltip, which change on every frame of a scrub, from glyphs that
+     * are rendered once rather than shaping them every frame. Text other than numbers is still
+     * drawn as usual.
+     */
+    @SuppressWarnings("unused")
+    public void setGlyphAtlasEnabled(boolean enabled) {
+        if (enabled == (glyphAtlas != null)) return;
+        if (enabled) {
+            glyphAtlas = new GlyphAtlas();
+        } else {
+            glyphAtlas.clear();
+            glyphAtlas = null;
+        }
+        super.invalidate();
+    }
+
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        //the size doesn't depend on the data, it only changes with the specs and, for SMALL
+        //graphs, with the height of the card containing the graph
+        if (!measured || widthMeasureSpec != measuredWidthSpec || heightMeasureSpec != measuredHeightSpec
+                || (isSizedByCard() && containerCard().getHeight() != containerHeight)) {
+            measuredWidthSpec = widthMeasureSpec;
+            measuredHeightSpec = heightMeasureSpec;
+            measured = true;
+            size(widthMeasureSpec, heightMeasureSpec);
+        }
+        setMeasuredDimension(width.get(), height.get());
+    }
+
+    private void size(int widthMeasureSpec, int heightMeasureSpec) {
         //ensures multiplier is never greater than 3 which is the max number of rows allowed
         switch (size) {
             case NORMAL:
                 final int m = 1;
 
                 //finding the column height
-                //firstly measure the height of any random text
-                final String random = "This Sample typo";
-                final float initialTS = mTextPaint.getTextSize();
-                mTextPaint.setTextSize(labelTextSize);
-                mTextPaint.getTextBounds(random, 0, random.length(), textRect);
-                mTextPaint.setTextSize(initialTS);
-
-                //we add a padding of 5 at the top an at the bottom
-                rowHeight.set(textRect.height() + 20);
+                //firstly measure the height of any random text, once per text size
+                if (rowTextSize != labelTextSize) {
+                    rowTextSize = labelTextSize;
+                    final String random = "This Sample typo";
+                    final float initialTS = mTextPaint.getTextSize();
+                    mTextPaint.setTextSize(labelTextSize);
+                    mTextPaint.getTextBounds(random, 0, random.length(), textRect);
+                    mTextPaint.setTextSize(initialTS);
+
+                    //we add a padding of 5 at the top an at the bottom
+                    rowHeight.set(textRect.height() + 20);
+                }
                 columnHeight.set(rowHeight.get() * m);
                 height.set(columnHeight.get() + graphAreaHeight + labelGraphSpace);
                 width.set(MeasureSpec.getSize(widthMeasureSpec));
@@ -389,20 +671,49 @@ public class GraphView extends View {
                     width.set(resolveAdjustedSize(width.get(), widthMeasureSpec));
                     height.set(resolveAdjustedSize(height.get(), heightMeasureSpec));
                 } else if (theHeight == SMALL) {
-                    final ViewGroup containerCard = findContainerCard(this);
-                    int h = containerCard.getHeight();
+                    final ViewGroup containerCard = containerCard();
+                    int h = containerHeight = containerCard.getHeight();
                     h *= 2;
                     h /= 3;
                     //find the heights of all other components within the container and subtract them
                     // from the h to get the height of the graph
-                    h -= removeHeight(containerCard);
+                    if (containerInset < 0) containerInset = removeHeight(containerCard);
+                    h -= containerInset;
 
                     width.set(resolveAdjustedSize(width.get(), widthMeasureSpec));
                     height.set(resolveAdjustedSize(h, heightMeasureSpec));
                 }
                 break;
         }
-        setMeasuredDimension(width.get(), height.get());
+    }
+
+    private boolean isSizedByCard() {
+        return size == CUSTOM && theHeight == SMALL;
+    }
+
+    /**
+     * @return the card containing the graph, which is only looked up again once the graph has
+     * been detached from the hierarchy it was found in
+     */
+    @NonNull
+    private ViewGroup containerCard() {
+        if (containerCard == null) {
+            containerCard = findContainerCard(this);
+            containerInset = -1;
+        }
+        return containerCard;
+    }
+
+    /**
+     * Requests a layout if the graph would be measured to a different size than it currently has.
+     * The size doesn't depend on the data, so a graph whose data changes e.g. in a RecyclerView
+     * isn't laid out again.
+     */
+    private void requestLayoutIfResized() {
+        if (!measured) return;
+        final int w = getMeasuredWidth(), h = getMeasuredHeight();
+        size(measuredWidthSpec, measuredHeightSpec);
+        if (width.get() != w || height.get() != h) requestLayout();
     }
 
     private static int resolveAdjustedSize(int desiredSize, int measureSpec) {
@@ -503,13 +814,60 @@ public class GraphView extends View {
         update();
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        observeFrameMetrics();
+        //whether the vertices' areas need paths depends on the window's hardware acceleration
+        if (data != null && renderer == RENDERER_VERTICES) generatePath();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (metricsWindow != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            metricsWindow.removeOnFrameMetricsAvailableListener(frameMetricsListener);
+        }
+        metricsWindow = null;
+        frameMetricsListener = null;
+        transitioning = false;
+        scrubScheduled = false;
+        Choreographer.getInstance().removeFrameCallback(transitionCallback);
+        Choreographer.getInstance().removeFrameCallback(scrubCallback);
+        //the graph may be attached to a different card next time
+        containerCard = null;
+        measured = false;
+        removeCallbacks(qualityIdle);
+        cancelRefinement();
+        releaseLayers();
+        releaseDensity();
+        if (bitmapPool != null) bitmapPool.clear();
+        if (glyphAtlas != null) glyphAtlas.clear();
+    }
+
     @Override
     public boolean onTouchEvent(@NonNull MotionEvent event) {
         if (size == NORMAL) {
+            final int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_DOWN) {
+                gesturing = true;
+            } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+                gesturing = false;
+                //drawn anti-aliased again
+                if (quality.quality() == QualityController.QUALITY_LOW) super.invalidate();
+            }
+            //a scrub's events are delivered as soon as they arrive rather than batched per frame
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN
+                    && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                    && bounds.contains(event.getX(), event.getY())) {
+                requestUnbufferedDispatch(event);
+            }
+            if (detector == null) detector = new GestureDetector(getContext(), new GestureListener());
             boolean result = detector.onTouchEvent(event);
             if (result) {
                 performClick();
-                invalidate();
+                //a touch only changes what's drawn over the graph, the geometry is left as it is
+                super.invalidate();
             }
             return result;
         } else return false;
@@ -528,17 +886,9 @@ public class GraphView extends View {
             return;
         }
 
-        if (data.lines.values().size() > 1) {
-            for (Plot plot : data.lines.values()) {
-                if (plot == null) continue;
-
-                plot.color = (listener != null) ? (listener.onCompare() ? GREEN : RED) : plot.color;
-                graph.set(plot);
-            }
-        }
-
+        final long start = System.nanoTime();
         if (size == NORMAL) {
-            if (!data.isSingle)
+            if (hasKey())
                 key(canvas);
 
             ListIterator<String> iterator = labels.listIterator();
@@ -546,6 +896,63 @@ public class GraphView extends View {
         }
         graph(canvas);
         if (size == NORMAL) xAxisLabels(canvas);
+
+        //timed from the frame metrics where they're reported, see #onFrameMetrics(FrameMetrics)
+        drawnSinceMetrics = true;
+        if (metricsWindow == null) quality.onFrame(System.nanoTime() - start);
+        removeCallbacks(qualityIdle);
+        if (quality.quality() != QualityController.QUALITY_HIGH) postDelayed(qualityIdle, QUALITY_IDLE_MILLIS);
+    }
+
+    /**
+     * Times the frames of the activity's window the graph is drawn in from their metrics, which
+     * unlike timing onDraw(Canvas) include the work of the render thread
+     */
+    private void observeFrameMetrics() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return;
+        final Activity activity = activity(getContext());
+        final Window window = activity == null ? null : activity.getWindow();
+        if (window == null) return;
+
+        metricsWindow = window;
+        frameMetricsListener = (w, metrics, dropped) -> onFrameMetrics(metrics);
+        //delivered on the main thread like the rest of the quality's updates
+        window.addOnFrameMetricsAvailableListener(frameMetricsListener, getHandler());
+    }
+
+    private void onFrameMetrics(@NonNull FrameMetrics metrics) {
+        //the window's frames that the graph isn't drawn in say nothing about it
+        if (!drawnSinceMetrics || Build.VERSION.SDK_INT < Build.VERSION_CODES.N) return;
+        drawnSinceMetrics = false;
+        quality.onFrame(metrics.getMetric(FrameMetrics.DRAW_DURATION)
+                + metrics.getMetric(FrameMetrics.SYNC_DURATION)
+                + metrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION));
+    }
+
+    @Nullable
+    private static Activity activity(@Nullable Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) return (Activity) context;
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    private void onQualityIdle() {
+        //a finger that's resting on the graph may move again any moment
+        if (gesturing) postDelayed(qualityIdle, QUALITY_IDLE_MILLIS);
+        else quality.onIdle();
+    }
+
+    private void onQualityChanged(int from, int to) {
+        //the plots are decimated to fewer columns at a reduced detail
+        final boolean reduced = to >= QualityController.QUALITY_REDUCED_DETAIL;
+        //the vertices' areas are drawn flat from paths which are only built at that quality
+        final boolean flat = renderer == RENDERER_VERTICES
+                && (to >= QualityController.QUALITY_FLAT_AREAS) != (from >= QualityController.QUALITY_FLAT_AREAS);
+        if (data != null && (flat || reduced != (from >= QualityController.QUALITY_REDUCED_DETAIL))) generatePath();
+        if (qualityListener != null) qualityListener.onQualityChanged(from, to);
+        super.invalidate();
     }
 
     void key(@NonNull Canvas c) {
@@ -554,12 +961,14 @@ public class GraphView extends View {
         if (count <= 0) return;
 
         mTextPaint.setTextSize(labelTextSize);
-        mTextPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 204));
 
         final int initialSave = c.save();
         c.translate(mRect.left, mRect.top);
         final int save = c.save();
         int i = 0;
+        //the translation of the canvas relative to the top of the key
+        float kx = 0, ky = 0;
+        keyLabels.clear();
 
         final float stroke = linePaint.getStrokeWidth();
         linePaint.setStrokeWidth(1.85f * stroke);
@@ -567,14 +976,22 @@ public class GraphView extends View {
             //Translate to the next row but if its the first row in the respective column then we
             //shouldn't translate
             Plot plot = plots.get(i);
-            if (i % 3 != 0) {
+            if (i % KEY_ROWS != 0) {
                 c.translate(0, rowBounds.height());
+                ky += rowBounds.height();
             }
-
+            if (keyBounds.size() <= i) keyBounds.add(new RectF());
+            keyBounds.get(i).set(mRect.left + kx, mRect.top + ky,
+                    mRect.left + kx + columnBounds.width(), mRect.top + ky + rowBounds.height());
+            keyLabels.add(plot.label);
+
+            //a hidden plot's entry is faded
+            final boolean isHidden = hidden.contains(plot.label);
+            mTextPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, isHidden ? 80 : 204));
             //translate to the text space
             c.save();
             final float y = indicator.centerY();
-            linePaint.setColor(plot.color);
+            linePaint.setColor(isHidden ? ColorUtils.setAlphaComponent(plot.color, 60) : plot.color);
             c.drawLine(indicator.left, y, indicator.right, y, linePaint);
             float labelBottom = indicator.bottom - 5;
             c.translate(indicator.width() + 30, labelBottom);
@@ -582,12 +999,15 @@ public class GraphView extends View {
             c.restore();
 
             //Translate to the second column
-            if (i == 2) {
+            if (i == KEY_ROWS - 1) {
                 c.restoreToCount(save);
                 c.translate(columnBounds.width(), 0);
+                kx += columnBounds.width();
+                ky = 0;
             }
             i++;
         } while (i < count);
+        mTextPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 204));
 
         linePaint.setStrokeWidth(stroke);
         c.restoreToCount(initialSave);
@@ -597,7 +1017,6 @@ public class GraphView extends View {
         if (!iterator.hasNext()) return;
         //generatePath();
         //NOTE: -THE DRAW IS FROM BOTTOM UPWARDS
-        gTextPaint.setTextSize(textSize);
 
         final int saveCount = c.save();
         c.translate(bounds.left, bounds.bottom);
@@ -605,6 +1024,7 @@ public class GraphView extends View {
         final int count = labels.size() - 1;
         final float interval = bounds.height() / count;
         final float width = bounds.width();
+        final int zero = scale.zero();
         do {
             final int i = iterator.nextIndex();
             final String l = iterator.next();
@@ -612,7 +1032,7 @@ public class GraphView extends View {
             textRect.offset(-textRect.right - SPACE, 0);
             c.drawText(l, textRect.left, textRect.height() / 2f, gTextPaint);
             //insert a space of 8 btn the line and the text
-            c.drawLine(0, 0, width, 0, i == 0 ? mXAxisPaint : mGuidesPaint);
+            c.drawLine(0, 0, width, 0, i == zero ? mXAxisPaint : mGuidesPaint);
             //translate relative to the last y point
             c.translate(0, -interval);
         } while (iterator.hasNext());
@@ -635,55 +1055,360 @@ public class GraphView extends View {
         //the coordinates shall display the inverted graph
         c.translate(bounds.left, bounds.bottom);
 
+        final Comparison comparison = data.comparison;
+        if (comparison != null && !hidden.contains(comparison.current.label)) {
+            comparisonAreaPaint.setColor(ColorUtils.setAlphaComponent(comparison.color, 40));
+            c.drawPath(comparison.area, comparisonAreaPaint);
+            comparisonPaint.setColor(ColorUtils.setAlphaComponent(comparison.color, 150));
+            c.drawPath(comparison.line, comparisonPaint);
+        }
+
+        if (transitioning) {
+            transition(c, hasAreas());
+            touched(c);
+            c.restore();
+            return;
+        }
+
+        if (renderer == RENDERER_DENSITY) {
+            density(c);
+            touched(c);
+            c.restore();
+            return;
+        }
+
+        //drawVertices isn't hardware accelerated before Q, the areas are then drawn as paths
+        final boolean vertices = renderer == RENDERER_VERTICES;
+        final boolean vertexAreas = vertices
+                && (!c.isHardwareAccelerated() || Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
+        final boolean layered = renderer == RENDERER_LAYERS;
+        final boolean areas = hasAreas();
+        if (layered) trimLayers();
+        final String selected = selectedKey.get();
+        final float stroke = linePaint.getStrokeWidth();
+        final int q = quality.quality();
+        //at the lowest quality the plots aren't anti-aliased while they're being touched
+        final boolean antiAlias = !gesturing || q < QualityController.QUALITY_LOW;
+        linePaint.setAntiAlias(antiAlias);
+        areaPaint.setAntiAlias(antiAlias);
         for (final Plot l : timeSeries) {
+            //hidden plots keep their geometry up to date, they just aren't drawn
+            if (hidden.contains(l.label)) continue;
+            final boolean isSelected = l.label.equals(selected);
+            if (layered && layer(c, l, isSelected)) continue;
+
             linePaint.setColor(l.color);
-            c.drawPath(l.line, linePaint);
-            areaPaint.setShader(
-                    new LinearGradient(
-                            weirdBounds.left,
-                            weirdBounds.top,
-                            weirdBounds.left,
-                            weirdBounds.bottom,
-                            new int[]{
-                                    ColorUtils.setAlphaComponent(l.color, 103),
-                                    ColorUtils.setAlphaComponent(l.color, 50),
-                                    ColorUtils.setAlphaComponent(l.color, 20)
-                            },
-                            new float[]{0, .5f, 1},
-                            Shader.TileMode.CLAMP
-                    )
-            );
-            c.drawPath(l.areaUnderGraph, areaPaint);
+            linePaint.setStrokeWidth(isSelected ? SELECTED_STROKE * stroke : stroke);
+            if (vertices) {
+                vertexRenderer.drawLine(c, l.screen, l.screenCount, linePaint);
+            } else {
+                c.drawPath(l.line(), linePaint);
+            }
+            if (!areas) continue;
+            if (!isSelected && q >= QualityController.QUALITY_FLAT_AREAS) {
+                areaPaint.setShader(null);
+                areaPaint.setColor(ColorUtils.setAlphaComponent(l.color, FLAT_AREA_ALPHA));
+                c.drawPath(l.areaUnderGraph(), areaPaint);
+                areaPaint.setColor(BLACK);
+                continue;
+            }
+            if (vertexAreas) {
+                vertexRenderer.drawArea(c, l.screen, l.screenCount, weirdBounds.top, 0, l.color, areaPaint);
+                continue;
+            }
+            area(c, l.areaUnderGraph(), l.color, weirdBounds, areaPaint);
         }
+        linePaint.setStrokeWidth(stroke);
 
         touched(c);
 
         c.restore();
     }
 
+    private void transition(@NonNull Canvas c, boolean areas) {
+        final float t = transitionProgress;
+        final float min = transitionMin + (scale.min() - transitionMin) * t;
+        final float range = transitionRange + (scale.range() - transitionRange) * t;
+        final float stroke = linePaint.getStrokeWidth();
+        for (int i = 0; i < transition.size(); i++) {
+            final int count = transition.frame(i, t, bounds.width(), bounds.height(), min, range, transitionFrame);
+            if (areas) {
+                //the area follows the line as it moves, closed along the bottom of the graph area
+                transitionArea.rewind();
+                transitionArea.moveTo(transitionFrame[0], transitionFrame[1]);
+                for (int j = 1; j < count; j++) {
+                    transitionArea.lineTo(transitionFrame[2 * j], transitionFrame[2 * j + 1]);
+                }
+                transitionArea.lineTo(transitionFrame[2 * (count - 1)], 0);
+                transitionArea.lineTo(transitionFrame[0], 0);
+                transitionArea.close();
+                area(c, transitionArea, transition.color(i), weirdBounds, areaPaint);
+            }
+            linePaint.setColor(transition.color(i));
+            linePaint.setStrokeWidth(transition.width(i, t));
+            vertexRenderer.drawLine(c, transitionFrame, count, linePaint);
+        }
+        linePaint.setStrokeWidth(stroke);
+    }
+
+    private static void area(@NonNull Canvas c, @NonNull Path area, int color, @NonNull RectF gradient, @NonNull Paint paint) {
+        paint.setShader(
+                new LinearGradient(
+                        gradient.left,
+                        gradient.top,
+                        gradient.left,
+                        gradient.bottom,
+                        new int[]{
+                                ColorUtils.setAlphaComponent(color, 103),
+                                ColorUtils.setAlphaComponent(color, 50),
+                                ColorUtils.setAlphaComponent(color, 20)
+                        },
+                        new float[]{0, .5f, 1},
+                        Shader.TileMode.CLAMP
+                )
+        );
+        c.drawPath(area, paint);
+    }
+
+    /**
+     * Draws the plot's layer and schedules it to be rasterized again if it's out of date
+     *
+     * @return false if the layer isn't up to date, the plot should then be drawn directly
+     */
+    private boolean layer(@NonNull Canvas c, @NonNull Plot plot, boolean selected) {
+        Layer layer = layers.get(plot.label);
+        if (layer == null) {
+            layer = new Layer();
+            layers.put(plot.label, layer);
+        }
+
+        final long content = plot.contentHash();
+        final LayerKey requested = layer.requested;
+        if (requested == null || !requested.matches(content, plot.color, selected, layersLayout, plot.detail)) {
+            rasterize(layer, plot, selected, new LayerKey(content, plot.color, selected, layersLayout, plot.detail));
+        }
+        if (layer.rendered != layer.requested || layer.bitmap == null) return false;
+
+        c.drawBitmap(layer.bitmap, -layer.padding, -bounds.height() - layer.padding, null);
+        return true;
+    }
+
+    /**
+     * Rasterizes a copy of the plot's paths into a bitmap on the {@link RenderExecutor}
+     */
+    private void rasterize(@NonNull Layer layer, @NonNull Plot plot, boolean selected, @NonNull LayerKey key) {
+        layer.requested = key;
+
+        final Paint line = new Paint(linePaint);
+        if (selected) line.setStrokeWidth(SELECTED_STROKE * line.getStrokeWidth());
+        line.setColor(plot.color);
+        final Paint area = new Paint(areaPaint);
+        final int padding = (int) Math.ceil(SELECTED_STROKE * linePaint.getStrokeWidth());
+        final float height = bounds.height();
+        final int bitmapWidth = (int) Math.ceil(bounds.width()) + 2 * padding;
+        final int bitmapHeight = (int) Math.ceil(height) + 2 * padding;
+        if (bounds.width() <= 0 || height <= 0) return;
+
+        final Path linePath = new Path(plot.line());
+        final Path areaPath = plot.areaUnderGraph == null ? null : new Path(plot.areaUnderGraph);
+        final RectF gradient = new RectF(weirdBounds);
+        final int color = plot.color;
+        final BitmapPool pool = bitmapPool();
+
+        RenderExecutor.get().execute(() -> {
+            final Bitmap bitmap = pool.acquire(bitmapWidth, bitmapHeight, Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(bitmap);
+            canvas.translate(padding, padding + height);
+            canvas.drawPath(linePath, line);
+            if (areaPath != null) area(canvas, areaPath, color, gradient, area);
+
+            post(() -> {
+                if (layer.released || layer.requested != key) {
+                    pool.release(bitmap);
+                    return;
+                }
+                if (layer.bitmap != null) pool.release(layer.bitmap);
+                layer.bitmap = bitmap;
+                layer.padding = padding;
+                layer.rendered = key;
+                //only the compositing is redone, the geometry is up to date
+                super.invalidate();
+            });
+        });
+    }
+
+    /**
+     * Drops the layers of the plots that are no longer in the graph
+     */
+    private void trimLayers() {
+        final Iterator<Map.Entry<String, Layer>> iterator = layers.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, Layer> entry = iterator.next();
+            if (!data.lines.containsKey(entry.getKey())) {
+                entry.getValue().release(bitmapPool);
+                iterator.remove();
+            }
+        }
+    }
+
+    private void releaseLayers() {
+        for (Layer layer : layers.values()) {
+            layer.release(bitmapPool);
+        }
+        layers.clear();
+    }
+
+    @NonNull
+    private BitmapPool bitmapPool() {
+        if (bitmapPool == null) bitmapPool = new BitmapPool(POOL_BYTES);
+        return bitmapPool;
+    }
+
+    private void density(@NonNull Canvas c) {
+        if (!densityPending) rasterizeDensity();
+        if (densityBitmap != null) c.drawBitmap(densityBitmap, 0, -densityBitmap.getHeight(), null);
+    }
+
+    /**
+     * Accumulates the plots that haven't been rasterized yet into the density buffer on the
+     * {@link RenderExecutor}, the plots are split across as many tasks as there are cores. The
+     * buffer is only rebuilt from scratch when the layout changes or a plot that's already in it
+     * changes or is removed.
+     */
+    private void rasterizeDensity() {
+        final int width = (int) Math.ceil(bounds.width()), height = (int) Math.ceil(bounds.height());
+        if (width <= 0 || height <= 0) return;
+
+        boolean rebuild = density == null || density.width() != width || density.height() != height
+                || densityLayout != layersLayout;
+        final List<Plot> added = new ArrayList<>();
+        int kept = 0;
+        for (final Plot plot : data.lines.values()) {
+            if (hidden.contains(plot.label)) continue;
+            final Integer version = densityVersions.get(plot);
+            if (version == null) added.add(plot);
+            else if (version != plot.version) rebuild = true;
+            else kept++;
+        }
+        if (kept < densityVersions.size()) rebuild = true;
+        if (rebuild) {
+            densityVersions.clear();
+            added.clear();
+            for (final Plot plot : data.lines.values()) {
+                if (!hidden.contains(plot.label)) added.add(plot);
+            }
+        }
+        if (added.isEmpty()) return;
+        densityLayout = layersLayout;
+
+        //the decimated points of the plots are flipped into the coordinates of the bitmap
+        final float[][] series = new float[added.size()][];
+        for (int i = 0; i < series.length; i++) {
+            final Plot plot = added.get(i);
+            densityVersions.put(plot, plot.version);
+            final float[] points = new float[2 * plot.screenCount];
+            for (int j = 0; j < points.length; j += 2) {
+                points[j] = plot.screen[j];
+                points[j + 1] = plot.screen[j + 1] + height;
+            }
+            series[i] = points;
+        }
+
+        final int tasks = Math.min(series.length, Runtime.getRuntime().availableProcessors());
+        if (densityPartials.length < tasks) {
+            densityPartials = Arrays.copyOf(densityPartials, tasks);
+        }
+        final DensityBuffer[] partials = densityPartials;
+        final DensityBuffer previous = rebuild ? null : density;
+        final DensityBuffer recycled = density;
+        final int[] pixels = densityPixels.length == width * height ? densityPixels : new int[width * height];
+        final BitmapPool pool = bitmapPool();
+        final int generation = densityGeneration;
+        final AtomicInteger remaining = new AtomicInteger(tasks);
+        densityPending = true;
+
+        for (int t = 0; t < tasks; t++) {
+            final int task = t;
+            RenderExecutor.get().execute(() -> {
+                DensityBuffer partial = partials[task];
+                if (partial == null || partial.width() != width || partial.height() != height) {
+                    partial = new DensityBuffer(width, height);
+                    partials[task] = partial;
+                } else {
+                    partial.clear();
+                }
+                for (int i = task; i < series.length; i += tasks) {
+                    partial.polyline(series[i], series[i].length / 2);
+                }
+                if (remaining.decrementAndGet() != 0) return;
+
+                //the last task to finish merges the partial buffers
+                DensityBuffer target = previous;
+                if (target == null) {
+                    if (recycled != null && recycled.width() == width && recycled.height() == height) {
+                        target = recycled;
+                        target.clear();
+                    } else {
+                        target = new DensityBuffer(width, height);
+                    }
+                }
+                for (int i = 0; i < tasks; i++) {
+                    target.add(partials[i]);
+                }
+                target.toneMap(DENSITY_RAMP, pixels);
+                final Bitmap bitmap = pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+                bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+
+                final DensityBuffer result = target;
+                post(() -> {
+                    if (generation != densityGeneration) {
+                        pool.release(bitmap);
+                        return;
+                    }
+                    density = result;
+                    densityPixels = pixels;
+                    if (densityBitmap != null) pool.release(densityBitmap);
+                    densityBitmap = bitmap;
+                    densityPending = false;
+                    super.invalidate();
+                });
+            });
+        }
+    }
+
+    private void releaseDensity() {
+        //a rasterization that's in flight is discarded once it completes
+        densityGeneration++;
+        densityPending = false;
+        densityVersions.clear();
+        density = null;
+        densityPartials = new DensityBuffer[0];
+        densityPixels = new int[0];
+        if (densityBitmap != null && bitmapPool != null) bitmapPool.release(densityBitmap);
+        densityBitmap = null;
+    }
+
     void xAxisLabels(Canvas canvas) {
-        if (xAxisLabels.isEmpty()) {
+        if (xAxisTicks == null) return;
+        final int count = xAxisTicks.size();
+        if (count == 0) {
             return;
         }
 
         int save = canvas.save();
         canvas.translate(bounds.left, bounds.bottom);
 
-        for (XAxisLabel xAxisLabel : xAxisLabels) {
-            int internalSave = canvas.save();
-            float x = xAxisLabel.coordinate.x;
-            canvas.translate(x, 0);
-            canvas.drawLine(0,
-                    0,
+        for (int i = 0; i < count; i++) {
+            final float x = xAxisTicks.position(i);
+            canvas.drawLine(x,
                     0,
+                    x,
                     xLabelIndicatorHeight,
                     xAxisLabelsPaint);
-            canvas.translate(0, xLabelIndicatorHeight);
-            canvas.drawText(xAxisLabel.value,
-                    xAxisLabel.textStartX,
-                    xLabelIndicatorHeight + 3,
+            canvas.drawText(xAxisTicks.label(i),
+                    x,
+                    2 * xLabelIndicatorHeight + 3,
                     mXLabelTextPaint);
-            canvas.restoreToCount(internalSave);
         }
 
         canvas.restoreToCount(save);
@@ -695,92 +1420,355 @@ public class GraphView extends View {
     void touched(@NonNull Canvas c) {
         if (size != NORMAL) return;
 
-        if (bests.isEmpty() || tLabels.isEmpty()) {
+        final Tooltip t = tooltip;
+        if (t == null) {
             return;
         }
         // Here we'll draw a rectangle, and on top of it some text showing where the user clicked
         // and a vertical line from the bottom of the triangle to the bottom x axis;
-        final float x = drawingX(touchedVal.x);
+        final float x = drawingX(t.touched.x);
 
         //The vertical indicator will start from the point
-        c.drawLine(x, 0, x, tRectF.bottom, mXLine);
+        final boolean low = quality.quality() == QualityController.QUALITY_LOW;
+        c.drawLine(x, 0, x, t.box.bottom, low ? solidXLine() : mXLine);
 
-        for (Best b : bests) {
+        for (Best b : t.bests) {
             this.cPaint.setColor(b.plot.color);
             c.drawCircle(x, drawingY(b.my), strokeWidth * 2.2f, this.cPaint);
         }
 
-        //include shadow renderer but we'll draw a plain rect
-        s.drawRoundRectWithShadow(c, rect, radius, elevation);
-
-        tRect.offsetTo(0, 0);
-        c.translate(tRectF.left, tRectF.top);
+        if (low) {
+            c.drawRoundRect(t.container, radius, radius, tooltipBoxPaint());
+        } else {
+            //include shadow renderer but we'll draw a plain rect
+            if (s == null) s = new ShadowRenderer();
+            s.drawRoundRectWithShadow(c, t.container, radius, elevation);
+        }
 
-        int i = 0;
-        final int size = tLabels.size();
-        final float interval = tRectF.height() / tLabels.size();
-        //final float textBottom = (tRectF.height()/tLabels.size() + 24)*.5f;
-        while (i < size) {
-            final String label = tLabels.get(i);
-            cTextPaint.getTextBounds(label, 0, label.length(), tRect);
-            tRect.offsetTo(0, 0);
-            float diff = interval - tRect.height();
-            diff /= 2;
-            tRect.offset(0, (int) diff);
-            c.translate(0, tRect.bottom);
+        final GlyphAtlas atlas = glyphAtlas();
+        final TextPaint cTextPaint = tooltipTextPaint();
 
-            if (i == size - 1 || size == 2) {
+        //everything has been measured when the tooltip was laid out
+        c.translate(t.box.left, t.box.top);
+        for (int i = 0; i < t.prefixes.length; i++) {
+            c.translate(0, t.advances[i]);
+            if (t.values[i] == null) {
                 //drawing the date i.e. the first label
-                //cTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
                 cTextPaint.setTypeface(Typeface.DEFAULT);
-                cPaint.setColor(BLACK);
-                c.drawText(label, 0, 0, cTextPaint);
+                if (atlas != null) atlas.drawText(c, t.prefixes[i], 0, 0, cTextPaint);
+                else c.drawText(t.prefixes[i], 0, 0, cTextPaint);
             } else {
-                final String[] split = label.split(Best.splitter);
-                split[0] = split[0].concat(Best.splitter);
-                cTextPaint.getTextBounds(split[0], 0, split[0].length(), tBounds);
-                split[0] = split[0].replace(Best.splitter, "");
-                c.drawText(split[0], 0, 0, cTextPaint);
+                c.drawText(t.prefixes[i], 0, 0, cTextPaint);
                 cTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
-                c.drawText(split[1], tBounds.right, 0, cTextPaint);
+                if (atlas != null) atlas.drawText(c, t.values[i], t.valueOffsets[i], 0, cTextPaint);
+                else c.drawText(t.values[i], t.valueOffsets[i], 0, cTextPaint);
             }
             cTextPaint.setTypeface(null);
-            i++;
         }
     }
 
+    /**
+     * @return the glyph atlas if enabled, replaced when the locale has changed since it has the
+     * locale's separators and currency symbol
+     */
+    @Nullable
+    private GlyphAtlas glyphAtlas() {
+        if (glyphAtlas != null && !glyphAtlas.locale().equals(Locale.getDefault())) {
+            glyphAtlas.clear();
+            glyphAtlas = new GlyphAtlas();
+        }
+        return glyphAtlas;
+    }
+
+    @NonNull
+    private Paint tooltipBoxPaint() {
+        if (tooltipBoxPaint == null) {
+            tooltipBoxPaint = new Paint();
+            tooltipBoxPaint.setColor(Color.WHITE);
+            tooltipBoxPaint.setStyle(Paint.Style.FILL);
+        }
+        return tooltipBoxPaint;
+    }
+
+    /**
+     * @return the crosshair's paint without the dashes, drawn at the lowest quality
+     */
+    @NonNull
+    private Paint solidXLine() {
+        if (solidXLine == null) {
+            solidXLine = new Paint(mXLine);
+            solidXLine.setPathEffect(null);
+        }
+        return solidXLine;
+    }
+
+    @NonNull
+    private TextPaint tooltipTextPaint() {
+        if (cTextPaint == null) cTextPaint = new TextPaint(style.tooltipTextPaint);
+        return cTextPaint;
+    }
+
     void clearTouched() {
-        bests.clear();
+        tooltip = null;
         if (touched.get())
             touched.set(!touched.get());
     }
 
+    /**
+     * Sets the data to be drawn. The plots of the new graph that have the same label and points as
+     * the current graph's take over their geometry and layers rather than generating them again,
+     * the geometry of the current graph's other plots is released to the pool.
+     */
     public void initialise(Graph data) {
+        data.awaitPrefetch();
+        final boolean transition = canTransition();
+        if (transition) transitionFrom();
+
+        final Graph previous = this.data;
         this.data = data;
+        if (previous != null && previous != data) reuse(previous, data);
         invalidate();
-        requestLayout();
+        if (transition) transitionTo();
+        requestLayoutIfResized();
     }
 
-    private void computeBounds() {
-        bounds.set(mRect);
+    /**
+     * Binds the data to the graph when it's recycled, e.g. by a RecyclerView. Unlike
+     * {@link #initialise(Graph)} the data isn't animated into place, the geometry of the data that
+     * was bound before is reused for the new data rather than allocated afresh and the graph is
+     * only laid out again if its size changes. Call {@link Graph#prefetch()} ahead of binding to
+     * prepare most of the geometry off the main thread.
+     */
+    @SuppressWarnings("unused")
+    public void bind(@NonNull Graph data) {
+        if (this.data != data) {
+            unbind();
+            data.awaitPrefetch();
+            this.data = data;
+        }
+        invalidate();
+        requestLayoutIfResized();
+    }
 
-        if (size == NORMAL) {
-            bounds.top += columnHeight.get() * data.lines.size() + labelGraphSpace;
-            bounds.bottom -= textSize + xLabelIndicatorHeight;
-            //compensate for the transition that's made
-            bounds.right -= ((float) getWidth() - bounds.right);
+    /**
+     * Releases the data bound to the graph, see {@link #bind(Graph)}. The geometry of its plots is
+     * returned to a pool shared by all the graphs, it's generated again if the data is drawn
+     * afterwards. The selection and the hidden plots are cleared.
+     */
+    @SuppressWarnings("unused")
+    public void unbind() {
+        if (data == null) return;
+        final Graph previous = data;
+        data = null;
+
+        transitioning = false;
+        scrubScheduled = false;
+        Choreographer.getInstance().removeFrameCallback(transitionCallback);
+        Choreographer.getInstance().removeFrameCallback(scrubCallback);
+        clearTouched();
+        if (tooltips != null) tooltips.evictAll();
+        hidden.clear();
+        selectedKey.set(null);
+        graph.set(null);
+        cancelRefinement();
+        releaseLayers();
+        releaseDensity();
+
+        final GeometryPool pool = GeometryPool.get();
+        for (final Plot plot : previous.lines.values()) {
+            plot.release(pool);
         }
+        super.invalidate();
     }
 
-    private void update() {
-        update(false);
+    private boolean canTransition() {
+        return transitionDuration > 0 && data != null && isAttachedToWindow()
+                && bounds.width() > 0 && bounds.height() > 0 && renderer != RENDERER_DENSITY;
     }
 
-    private void update(boolean isInvalidation) {
-        // this method updates the graph area bounds, labels and generates the required paths that'll
-        // be drawn in onDraw method.
-        // It should be called when the views size changes in (onSizeChanged(int, int, int, int) and when new line
-        // is added to the GraphView i.e. when the view is invalidated.
+    /**
+     * Captures the visible plots as they're drawn now as the start of a transition. The decimated
+     * points are resampled so that the transition's cost doesn't depend on the size of the plots.
+     */
+    private void transitionFrom() {
+        transitionSlots.clear();
+        transition.begin(Math.max(2, Math.min(MAX_TRANSITION_POINTS, (int) Math.ceil(bounds.width() / 2))));
+        transitionMin = scale.min();
+        transitionRange = scale.range();
+
+        final float baseline = baseline();
+        final String selected = selectedKey.get();
+        for (final Plot plot : data.lines.values()) {
+            if (hidden.contains(plot.label)) continue;
+            final int slot = transition.add();
+            transitionSlots.put(plot.label, slot);
+            final int count = transitionPoints(plot);
+            transition.from(slot, plot.color, stroke(plot, selected), transitionPoints, count, baseline);
+        }
+    }
+
+    /**
+     * Captures the visible plots as the end of the transition and starts it. Plots that only
+     * exist on one side of the transition grow from or shrink to the baseline.
+     */
+    private void transitionTo() {
+        final float baseline = baseline();
+        final String selected = selectedKey.get();
+        for (final Plot plot : data.lines.values()) {
+            if (hidden.contains(plot.label)) continue;
+            Integer slot = transitionSlots.get(plot.label);
+            if (slot == null) {
+                slot = transition.add();
+                transition.from(slot, plot.color, stroke(plot, selected), null, 0, baseline);
+            }
+            final int count = transitionPoints(plot);
+            transition.to(slot, plot.color, stroke(plot, selected), transitionPoints, count, baseline);
+        }
+        for (int i = 0; i < transition.size(); i++) {
+            if (!transition.hasTo(i)) {
+                transition.to(i, transition.color(i), transition.width(i, 0), null, 0, baseline);
+            }
+        }
+
+        if (transitionFrame.length < 2 * transition.points()) {
+            transitionFrame = new float[2 * transition.points()];
+        }
+        transitioning = true;
+        transitionStart = -1;
+        transitionProgress = 0;
+        final Choreographer choreographer = Choreographer.getInstance();
+        choreographer.removeFrameCallback(transitionCallback);
+        choreographer.postFrameCallback(transitionCallback);
+    }
+
+    private void onTransitionFrame(long frameTimeNanos) {
+        if (!transitioning) return;
+        if (transitionStart < 0) transitionStart = frameTimeNanos;
+
+        final float linear = Math.min(1, (frameTimeNanos - transitionStart) / (transitionDuration * 1e6f));
+        //eases in and out
+        transitionProgress = linear * linear * (3 - 2 * linear);
+        if (linear < 1) Choreographer.getInstance().postFrameCallback(transitionCallback);
+        else transitioning = false;
+        super.invalidate();
+    }
+
+    /**
+     * Copies the plot's decimated points into the transition's buffer with x between 0 and 1 and
+     * y in the units of the data. A plot that's drawn progressively ends the transition at the
+     * level it's drawn at now, the refinement swaps in the detail once it's built off the main
+     * thread.
+     *
+     * @return the number of points
+     */
+    private int transitionPoints(@NonNull Plot plot) {
+        final float width = bounds.width(), height = bounds.height();
+        plot.layoutPoints(geometry, width, (int) Math.ceil(width));
+
+        final int count = plot.screenCount;
+        if (transitionPoints.length < 2 * count) transitionPoints = new float[2 * count];
+        for (int i = 0; i < count; i++) {
+            transitionPoints[2 * i] = plot.screen[2 * i] / width;
+            transitionPoints[2 * i + 1] = scale.min() - plot.screen[2 * i + 1] / height * scale.range();
+        }
+        return count;
+    }
+
+    /**
+     * @return the value the plots that appear or disappear start from or end at, zero if it's on
+     * the axis
+     */
+    private float baseline() {
+        return Math.max(scale.min(), Math.min(scale.max(), 0));
+    }
+
+    private float stroke(@NonNull Plot plot, @Nullable String selected) {
+        return plot.label.equals(selected) ? SELECTED_STROKE * linePaint.getStrokeWidth() : linePaint.getStrokeWidth();
+    }
+
+    private void reuse(@NonNull Graph previous, @NonNull Graph next) {
+        final GeometryPool pool = GeometryPool.get();
+        for (final Plot plot : next.lines.values()) {
+            final Plot old = previous.lines.get(plot.label);
+            if (old == null || old == plot) continue;
+            //a plot that kept its label but not its points builds its geometry afresh
+            if (!plot.sameContent(old)) {
+                densityVersions.remove(old);
+                old.release(pool);
+                continue;
+            }
+
+            final Integer density = densityVersions.remove(old);
+            final boolean rasterized = density != null && density == old.version;
+            plot.adopt(old);
+            if (rasterized) densityVersions.put(plot, plot.version);
+        }
+        for (final Plot old : previous.lines.values()) {
+            if (!next.lines.containsKey(old.label)) old.release(pool);
+        }
+        trimLayers();
+    }
+
+    /**
+     * Colours the plots as per the {@link CompareListener}. The listener is only consulted when the
+     * data or the listener itself has changed since the last comparison, the result is then cached
+     * in the plots' colours which is all that's read when drawing. The comparison overlay is
+     * coloured in its own field so the compared plot keeps the colour it was given.
+     */
+    private void compare() {
+        if (data == null) return;
+
+        final long version = data.version();
+        if (version == comparedVersion && listener == comparedListener) return;
+        comparedVersion = version;
+        comparedListener = listener;
+
+        if (listener != null && data.lines.size() > 1) {
+            for (Plot plot : data.lines.values()) {
+                if (plot == null) continue;
+
+                plot.color = listener.onCompare(plot) ? GREEN : RED;
+                graph.set(plot);
+            }
+        }
+
+        //without a listener the overlay is coloured by the trend, the plot keeps its own colour
+        final Comparison comparison = data.comparison;
+        if (comparison != null) {
+            comparison.color = listener != null ? comparison.current.color
+                    : comparison.isRising() ? GREEN : RED;
+        }
+    }
+
+    /**
+     * @return whether the key is drawn above the graph
+     */
+    private boolean hasKey() {
+        return !data.isSingle && renderer != RENDERER_DENSITY;
+    }
+
+    private void computeBounds() {
+        bounds.set(mRect);
+
+        if (size == NORMAL) {
+            //only as many rows as the key lays out in a column
+            final int rows = hasKey() ? Math.min(data.lines.size(), KEY_ROWS) : 0;
+            bounds.top += columnHeight.get() * rows + labelGraphSpace;
+            bounds.bottom -= textSize + xLabelIndicatorHeight;
+            //compensate for the transition that's made
+            bounds.right -= ((float) getWidth() - bounds.right);
+        }
+    }
+
+    private void update() {
+        update(false);
+    }
+
+    private void update(boolean isInvalidation) {
+        // this method updates the graph area bounds, labels and generates the required paths that'll
+        // be drawn in onDraw method.
+        // It should be called when the views size changes in (onSizeChanged(int, int, int, int) and when new line
+        // is added to the GraphView i.e. when the view is invalidated.
         //
         if (data == null) return;
         if (!isInvalidation)
@@ -795,16 +1783,76 @@ public class GraphView extends View {
         if (dataListener != null) {
             dataListener.onChanged();
         }
+        compare();
 
-        previousMax = maximum;
-        float max = Collections.max(data.lines.values(), (o1, o2) -> Float.compare(o1.maxy, o2.maxy)).maxy;
-        if (max != maximum)
-            maximum = max;
+        scale();
 
         update(true);
         super.invalidate();
     }
 
+    /**
+     * Fits the y-axis to the visible plots using the extremes cached in the plots
+     *
+     * @return true if the axis changed
+     */
+    private boolean scale() {
+        if (hidden.isEmpty()) return scale.compute(data.miny, data.max.y);
+
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (final Plot plot : data.lines.values()) {
+            if (hidden.contains(plot.label)) continue;
+            min = Math.min(min, plot.miny);
+            max = Math.max(max, plot.maxy);
+        }
+        final Comparison comparison = data.comparison;
+        if (comparison != null && comparison.size() > 0 && !hidden.contains(comparison.current.label)) {
+            min = Math.min(min, comparison.min);
+            max = Math.max(max, comparison.max);
+        }
+        //with every plot hidden the axis is left as it is
+        if (min > max) return false;
+        return scale.compute(min, max);
+    }
+
+    /**
+     * Shows or hides a plot without rebuilding the {@link Graph}. The y-axis is fitted to the
+     * visible plots, the geometry is only regenerated if the axis changes. A hidden plot's
+     * geometry is kept up to date so showing it again is immediate.
+     *
+     * @param key the label of the plot
+     */
+    @SuppressWarnings("unused")
+    public void setPlotVisible(String key, boolean visible) {
+        if (data == null || !data.lines.containsKey(key)) {
+            Timber.e(new IllegalArgumentException(), "setPlotVisible: Unidentified Key: %s", key);
+            return;
+        }
+        if (visible ? !hidden.remove(key) : !hidden.add(key)) return;
+
+        clearTouched();
+        if (tooltips != null) tooltips.evictAll();
+        if (scale()) update(true);
+        super.invalidate();
+    }
+
+    @SuppressWarnings("unused")
+    public boolean isPlotVisible(String key) {
+        return !hidden.contains(key);
+    }
+
+    /**
+     * @return the label of the key's entry at the point or null if there's none
+     */
+    @Nullable
+    private String keyAt(float x, float y) {
+        if (size != NORMAL || data == null || data.isSingle || renderer == RENDERER_DENSITY) return null;
+        for (int i = 0; i < keyLabels.size(); i++) {
+            if (keyBounds.get(i).contains(x, y)) return keyLabels.get(i);
+        }
+        return null;
+    }
+
     /**
      * Selects a certain graph from a list as per the liking of the user using a unique key that's
      * been submit
@@ -820,11 +1868,85 @@ public class GraphView extends View {
             return;
         }
 
+        //the selection only changes how the plots are styled, not their geometry, so it isn't
+        //animated
         selectedKey.set(key);
         graph.set(data.lines.get(selectedKey.get()));
 
         invalidate();
-        requestLayout();
+        requestLayoutIfResized();
+    }
+
+    /**
+     * Records the latest position of a scrub and schedules the lookup of the points under it for
+     * the next frame, so however many events arrive within a frame only one lookup is done. The
+     * position is extrapolated from the event's historical samples to make up for the time until
+     * the frame is displayed.
+     */
+    private void scrub(@NonNull MotionEvent e) {
+        scrubX = predict(e);
+        scrubEventTime = e.getEventTime();
+        scrubMetrics.onEvent();
+        if (scrubScheduled) return;
+        scrubScheduled = true;
+        Choreographer.getInstance().postFrameCallback(scrubCallback);
+    }
+
+    private float predict(@NonNull MotionEvent e) {
+        final float x = e.getX();
+        final int history = e.getHistorySize();
+        if (history == 0) return x;
+
+        final long elapsed = e.getEventTime() - e.getHistoricalEventTime(0);
+        if (elapsed <= 0) return x;
+        final float velocity = (x - e.getHistoricalX(0)) / elapsed;
+        return Math.max(bounds.left, Math.min(bounds.right, x + velocity * SCRUB_PREDICTION_MILLIS));
+    }
+
+    private void onScrubFrame(long frameTimeNanos) {
+        if (!scrubScheduled || data == null) return;
+        scrubScheduled = false;
+
+        bests(scrubX);
+        //the event times and the frame times share the monotonic clock
+        scrubMetrics.onFrame(frameTimeNanos - scrubEventTime * 1_000_000L);
+        super.invalidate();
+        final Tooltip t = tooltip;
+        if (crosshairGroup != null && t != null) {
+            crosshairGroup.scrubbed(this, t.touched.x, t.labels.get(t.labels.size() - 1));
+        }
+    }
+
+    /**
+     * Moves the crosshair to the points at the given x value as the member of a
+     * {@link CrosshairGroup} that another member has been scrubbed on. The view is redrawn without
+     * recomputing the geometry of its plots.
+     *
+     * @param date the formatted date of the x value
+     */
+    void crosshair(float x, @NonNull String date) {
+        if (size != NORMAL || data == null) return;
+        lookup(x, true, date);
+        super.invalidate();
+    }
+
+    /**
+     * Removes the crosshair as the member of a {@link CrosshairGroup}, the view is redrawn without
+     * recomputing the geometry of its plots
+     */
+    void clearCrosshair() {
+        clearTouched();
+        super.invalidate();
+    }
+
+    /**
+     * @return the counts of the events, frames and lookups of the scrubs so far and the latency
+     * of their frames
+     */
+    @NonNull
+    @SuppressWarnings("unused")
+    public ScrubMetrics getScrubMetrics() {
+        return scrubMetrics;
     }
 
     @SuppressWarnings("unused")
@@ -838,77 +1960,157 @@ public class GraphView extends View {
      * @param touchedX x-coordinate of the point touched on the screen
      */
     protected void bests(float touchedX) {
+        //Account for the translation made in starting to draw the graph which is bounds.left
+        final float estimatedActualX = actualX(touchedX - bounds.left);
+        lookup(estimatedActualX, false, null);
+    }
+
+    /**
+     * Lays out the tooltip of the points at the x value
+     *
+     * @param exact whether the x value is that of the points rather than an estimate, in which
+     *              case they're found in constant time, see {@link Plot#indexAt(float)}
+     * @param date  the formatted date of the x value if it's already known
+     */
+    private void lookup(float x, boolean exact, @Nullable String date) {
+        scrubMetrics.onLookup();
         clearTouched();
         touched.set(true);
-        //Account for the translation made in starting to draw the graph which is bounds.left
-        touchedX -= bounds.left;
-//        touchedX /= multiplier.x;
-        float estimatedActualX = actualX(touchedX);
-        //but this new value doesn't put into consideration that the graph begins at the bounds.left
-
-        List<Plot> plots = new ArrayList<>(data.lines.values());
-        final Iterator<Plot> it = plots.iterator();
-        if (!it.hasNext())
-            return;
 
-        String max = "";
-        String date = "";
+        //the points closest to the touch identify the tooltip
+        final Collection<Plot> plots = data.lines.values();
+        if (tooltipIndices.length < plots.size()) tooltipIndices = new int[plots.size()];
+        int count = 0, key = 1;
+        for (Plot plot : plots) {
+            if (hidden.contains(plot.label)) continue;
+            final int index = exact ? plot.indexAt(x) : plot.indexOf(x);
+            if (index < 0) continue;
+            tooltipIndices[count++] = index;
+            key = 31 * key + index;
+        }
+        if (count == 0) return;
+
+        if (tooltips == null) tooltips = new LruCache<>(TOOLTIP_CACHE_SIZE);
+        validateTooltips();
+        Tooltip tooltip = tooltips.get(key);
+        if (tooltip == null || !tooltip.matches(tooltipIndices, count)) {
+            tooltip = layoutTooltip(count, date);
+            tooltips.put(key, tooltip);
+        }
+        this.tooltip = tooltip;
+    }
 
-        tLabels.clear();
-        touchedVal.set(0, 0);
+    /**
+     * Drops the laid out tooltips if the data, the axis, the bounds or the locale has changed
+     */
+    private void validateTooltips() {
+        final long version = data.version();
+        final Locale locale = Locale.getDefault();
+        if (version == tooltipsVersion && scale.version() == tooltipsScale
+                && locale.equals(tooltipsLocale) && bounds.equals(tooltipsBounds)) {
+            return;
+        }
+        tooltipsVersion = version;
+        tooltipsScale = scale.version();
+        tooltipsLocale = locale;
+        tooltipsBounds.set(bounds);
+        tooltips.evictAll();
+    }
 
-        for (Plot plot : plots) {
-            final Coordinate coordinate = findCoordinate(new ArrayList<>(plot.coordinates), estimatedActualX);
+    /**
+     * Formats and measures the tooltip of the points at the indices in {@link #tooltipIndices}
+     *
+     * @param date the formatted date of the points, formatted here if it's null
+     */
+    @NonNull
+    private Tooltip layoutTooltip(int count, @Nullable String date) {
+        final Tooltip t = new Tooltip(Arrays.copyOf(tooltipIndices, count));
+        final TextPaint cTextPaint = tooltipTextPaint();
+        if (date == null) date = "";
+        String max = date;
+
+        int i = 0;
+        for (Plot plot : data.lines.values()) {
+            if (hidden.contains(plot.label) || plot.size() == 0) continue;
+            final int index = t.indices[i++];
+            final float x = plot.x(index), y = plot.y(index);
 
             if (date.isEmpty()) {
-                date = date((int) coordinate.x);
+                final String d = date((int) x);
+                date = d == null ? "" : d;
                 if (date.length() > max.length())
                     max = date;
             }
 
-            final Best best = new Best(plot, coordinate.y, plots.size());
-            bests.add(best);
+            final Best best = new Best(plot, y, count);
+            t.bests.add(best);
 
-            if (coordinate.y > touchedVal.y) {
-                touchedVal.set(coordinate);
+            if (y > t.touched.y) {
+                t.touched.set(x, y);
             }
             if (best.label.length() > max.length()) max = best.label;
 
-            tLabels.add(best.label);
+            t.labels.add(best.label);
         }
-        tLabels.add(date);
+        t.labels.add(date);
 
         cTextPaint.setTypeface(Typeface.DEFAULT_BOLD);
         cTextPaint.getTextBounds(max, 0, max.length(), tRect);
         tRect.bottom += 5;//5 is the padding btn the vals i.e there'll be 2.5 space
         cTextPaint.setTypeface(null);
 
-        final int count = tLabels.size();
-        final float height = count * (tRect.height());
+        final int size = t.labels.size();
+        final float height = size * (tRect.height());
         final float width = tRect.width();
         final float cy = weirdBounds.centerY();
-        tRectF.top = drawingY(touchedVal.y) > cy ? cy : weirdBounds.top;
-        tRectF.left = drawingX(touchedVal.x);
-        tRectF.right = tRectF.left + width;
-        tRectF.bottom = tRectF.top + height/*- 5*/;//5 is removing the space at the bottom...
+        final RectF box = t.box;
+        box.top = drawingY(t.touched.y) > cy ? cy : weirdBounds.top;
+        box.left = drawingX(t.touched.x);
+        box.right = box.left + width;
+        box.bottom = box.top + height/*- 5*/;//5 is removing the space at the bottom...
 
         //center the rect along the x-axis to the touched val
-        tRectF.offset(-tRectF.width() * .5f, 0);
+        box.offset(-box.width() * .5f, 0);
         //ensure the rect is within bounds
 
         //this is the "container used to draw the bounds with the shadow
-        rect.set(tRectF);
+        final RectF container = t.container;
+        container.set(box);
         float v = 5, h = 10;
-        rect.inset(-(padding + h), -(padding + v));
+        container.inset(-(padding + h), -(padding + v));
 
-        if (rect.left < weirdBounds.left) {
-            rect.offsetTo(0, rect.top);
+        if (container.left < weirdBounds.left) {
+            container.offsetTo(0, container.top);
         }
-        if (rect.right > weirdBounds.width()) {
-            rect.offset(-abs(rect.right - weirdBounds.width()), 0);
+        if (container.right > weirdBounds.width()) {
+            container.offset(-abs(container.right - weirdBounds.width()), 0);
         }
-        tRectF.set(rect);
-        tRectF.inset(padding + h, padding + v);
+        box.set(container);
+        box.inset(padding + h, padding + v);
+
+        //the lines are split into the plot's label and its value which is drawn in bold
+        t.prefixes = new String[size];
+        t.values = new String[size];
+        t.valueOffsets = new float[size];
+        t.advances = new float[size];
+        final float interval = box.height() / size;
+        for (int l = 0; l < size; l++) {
+            final String label = t.labels.get(l);
+            cTextPaint.getTextBounds(label, 0, label.length(), tRect);
+            t.advances[l] = tRect.height() + (int) ((interval - tRect.height()) / 2);
+
+            if (l == size - 1 || size == 2) {
+                t.prefixes[l] = label;
+                continue;
+            }
+            final String[] split = label.split(Best.splitter);
+            final String prefix = split[0].concat(Best.splitter);
+            cTextPaint.getTextBounds(prefix, 0, prefix.length(), tBounds);
+            t.prefixes[l] = split[0];
+            t.values[l] = split[1];
+            t.valueOffsets[l] = tBounds.right;
+        }
+        return t;
     }
 
     protected final float calcPadding(float radius) {
@@ -979,50 +2181,239 @@ public class GraphView extends View {
     }
 
     void generatePath() {
-        multiplier.x = bounds.width() / (data.max.x - data.minx);
+        final float rangeX = data.max.x - data.minx;
+        multiplier.x = bounds.width() / rangeX;
         //find the inverse of the y values
-        multiplier.y = -(bounds.height() / data.max.y);
+        multiplier.y = -(bounds.height() / scale.range());
+
+        //The geometry is kept in unit coordinates which only change with the data or the scale.
+        //Fitting it to the bounds, say on a resize, is then a single transformation of the points
+        geometry.setScale(bounds.width(), -bounds.height());
+        final int columns = columns();
+        final boolean lines = hasLinePaths(), areas = hasAreaPaths();
+        cancelRefinement();
+        boolean refine = false;
         for (final Plot o : data.lines.values()) {
-            o.line.rewind();
-            o.areaUnderGraph.rewind();
-            final Iterator<Coordinate> iterator = o.coordinates.iterator();
-            final Coordinate firstPoint = iterator.next();
-            o.line.moveTo(drawingX(firstPoint.x), drawingY(firstPoint.y));
+            o.coarse(progressive && o.size() > PROGRESSIVE_POINTS ? COARSE_POINTS : 0);
+            o.normalize(data.minx, rangeX, scale.min(), scale.range(), lines, areas);
+            layout(o, columns);
+            refine |= o.detail < columns;
+        }
+        if (refine) refine(columns);
+
+        final Comparison comparison = data.comparison;
+        if (comparison != null) {
+            comparison.normalize(data.minx, rangeX, scale.min(), scale.range());
+            comparison.unitLine.transform(geometry, comparison.line);
+            comparison.unitArea.transform(geometry, comparison.area);
+        }
+
+        final float[] key = layoutKey;
+        if (key[0] != bounds.left || key[1] != bounds.top || key[2] != bounds.right || key[3] != bounds.bottom
+                || key[4] != weirdBounds.top || key[5] != weirdBounds.bottom || key[6] != data.minx
+                || key[7] != rangeX || layoutScale != scale.version()) {
+            key[0] = bounds.left;
+            key[1] = bounds.top;
+            key[2] = bounds.right;
+            key[3] = bounds.bottom;
+            key[4] = weirdBounds.top;
+            key[5] = weirdBounds.bottom;
+            key[6] = data.minx;
+            key[7] = rangeX;
+            layoutScale = scale.version();
+            layersLayout++;
+        }
+    }
 
-            while (iterator.hasNext()) {
-                final Coordinate p = iterator.next();
-                o.line.lineTo(drawingX(p.x), drawingY(p.y));
+    /**
+     * @return the columns the plots are decimated to, fewer than the graph area's at a reduced
+     * quality
+     */
+    private int columns() {
+        final int columns = (int) Math.ceil(bounds.width());
+        if (quality.quality() < QualityController.QUALITY_REDUCED_DETAIL) return columns;
+        return Math.max(1, columns / 2);
+    }
+
+    /**
+     * Fits the plot's unit geometry, whichever of it is built, to the graph area
+     */
+    private void layout(@NonNull Plot o, int columns) {
+        if (o.unitLine != null) o.unitLine.transform(geometry, o.line());
+        if (o.unitArea != null) o.unitArea.transform(geometry, o.areaUnderGraph());
+        if (renderer == RENDERER_VERTICES || renderer == RENDERER_DENSITY) {
+            o.layoutPoints(geometry, bounds.width(), columns);
+        }
+    }
+
+    /**
+     * Builds finer levels of the plots that aren't yet as detailed as the columns of the graph
+     * area on the {@link RenderExecutor}. Each level doubles the columns the plots are decimated
+     * to and is drawn once it's built for all of them, until they're decimated to the columns
+     * of the graph area which draws them as if they were built from all of their points.
+     */
+    private void refine(int columns) {
+        final List<Refinement> refinements = new ArrayList<>();
+        int from = columns;
+        for (final Plot plot : data.lines.values()) {
+            if (plot.detail >= columns) continue;
+            refinements.add(new Refinement(plot));
+            from = Math.min(from, plot.detail);
+        }
+        if (refinements.isEmpty()) return;
+
+        final int generation = refinementGeneration;
+        final int start = Math.min(columns, Math.max(COARSE_POINTS / 2, 2 * from));
+        refinement = RenderExecutor.get().submit(() -> {
+            for (int level = start; ; level = Math.min(columns, 2 * level)) {
+                final float[][] points = new float[refinements.size()][];
+                final int[] counts = new int[points.length];
+                for (int i = 0; i < points.length; i++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        for (int j = 0; j < i; j++) GeometryPool.get().release(points[j]);
+                        return;
+                    }
+                    counts[i] = refinements.get(i).level(level);
+                    points[i] = refinements.get(i).points;
+                }
+                final int detail = level;
+                post(() -> refined(generation, refinements, points, counts, detail));
+                if (level >= columns) return;
             }
+        });
+    }
 
-            o.areaUnderGraph.addPath(o.line);
-            o.areaUnderGraph.lineTo(bounds.width(), 0);
-            o.areaUnderGraph.lineTo(drawingX(firstPoint.x), 0);
-            o.areaUnderGraph.close();
+    /**
+     * Swaps a level built by {@link #refine(int)} into the plots unless the plots have changed
+     * since, in which case the level is dropped
+     */
+    private void refined(int generation, @NonNull List<Refinement> refinements,
+                         @NonNull float[][] points, @NonNull int[] counts, int detail) {
+        if (generation != refinementGeneration || data == null) {
+            for (float[] p : points) GeometryPool.get().release(p);
+            return;
         }
+
+        final int columns = columns();
+        for (int i = 0; i < points.length; i++) {
+            final Refinement r = refinements.get(i);
+            final Plot plot = r.plot;
+            //points added without the graph being invalidated leave the plot as it is
+            if (detail <= plot.detail || r.version != plot.version) {
+                GeometryPool.get().release(points[i]);
+                continue;
+            }
+            plot.refine(points[i], counts[i], detail);
+            layout(plot, columns);
+        }
+        //the density is accumulated again from the finer points, the layers are keyed by them
+        densityLayout = ~layersLayout;
+        if (detail >= columns) refinement = null;
+        super.invalidate();
+    }
+
+    /**
+     * Stops building finer levels of the plots, a level that's already being built is dropped
+     * once it's done
+     */
+    private void cancelRefinement() {
+        refinementGeneration++;
+        if (refinement != null) refinement.cancel(true);
+        refinement = null;
+    }
+
+    /**
+     * @return false if only the lines are drawn, a MINI graph is too small for the areas under
+     * them to be worth building
+     */
+    private boolean hasAreas() {
+        return size != MINI;
+    }
+
+    /**
+     * @return whether the plots' lines are drawn from paths, the vertices and the density are
+     * drawn from the decimated points alone
+     */
+    private boolean hasLinePaths() {
+        return renderer == RENDERER_PATH || renderer == RENDERER_LAYERS;
+    }
+
+    /**
+     * @return whether the areas under the plots are drawn from paths. The vertices draw them from
+     * the decimated points unless drawVertices isn't hardware accelerated, before Q, or they're
+     * drawn flat at a lowered quality.
+     */
+    private boolean hasAreaPaths() {
+        if (!hasAreas() || renderer == RENDERER_DENSITY) return false;
+        if (renderer != RENDERER_VERTICES) return true;
+        return isHardwareAccelerated() && Build.VERSION.SDK_INT < Build.VERSION_CODES.Q
+                || quality.quality() >= QualityController.QUALITY_FLAT_AREAS;
+    }
+
+    /**
+     * Remembers the ranges that some geometry was normalized against
+     *
+     * @return true if any of the ranges differs from the ones in the key, which is then updated
+     */
+    private static boolean rangeChanged(@NonNull float[] key, float minx, float rangeX, float miny, float rangeY) {
+        if (key[0] == minx && key[1] == rangeX && key[2] == miny && key[3] == rangeY) return false;
+        key[0] = minx;
+        key[1] = rangeX;
+        key[2] = miny;
+        key[3] = rangeY;
+        return true;
     }
 
     @NonNull
     public static String label(float val) {
+        return label(val, 0);
+    }
+
+    /**
+     * Formats the value like {@link #label(float)} with as many fraction digits as values that
+     * are a step apart need to be told apart, at least one
+     *
+     * @param step the difference between consecutive values e.g. the step of the y-axis
+     */
+    @NonNull
+    public static String label(float val, float step) {
         String suffix = "";
+        float divisor = 1;
         final float t = (float) (Math.pow(10, 12));
         final float b = (float) (Math.pow(10, 9));
         final float m = (float) (Math.pow(10, 6));
         final float k = (float) (Math.pow(10, 3));
-        if (val >= t) {
-            val /= t;
+        final float magnitude = abs(val);
+        if (magnitude >= t) {
+            divisor = t;
             suffix = "t";
-        } else if (val >= b) {
-            val /= b;
+        } else if (magnitude >= b) {
+            divisor = b;
             suffix = "b";
-        } else if (val >= m) {
-            val /= m;
+        } else if (magnitude >= m) {
+            divisor = m;
             suffix = "m";
-        } else if (val >= k) {
-            val /= k;
+        } else if (magnitude >= k) {
+            divisor = k;
             suffix = "k";
         }
+        val /= divisor;
 
-        return format(Locale.getDefault(), FORMAT, val, suffix);
+        final int digits = fractionDigits(step / divisor);
+        return format(Locale.getDefault(), digits == 1 ? FORMAT : "%." + digits + "f%s", val, suffix);
+    }
+
+    /**
+     * @return the fewest fraction digits, at least one, that the step is written out with
+     */
+    private static int fractionDigits(float step) {
+        int digits = 1;
+        double scaled = abs(step) * 10;
+        while (digits < MAX_FRACTION_DIGITS && abs(scaled - Math.rint(scaled)) > 1e-3 * scaled) {
+            digits++;
+            scaled *= 10;
+        }
+        return digits;
     }
 
     public static float parse(String label) {
@@ -1032,19 +2423,16 @@ public class GraphView extends View {
     void labels() {
         if (size != NORMAL) return;
 
-        if (Float.compare(previousMax, maximum) != 0) {
+        //the labels only change with the scale, which is cached per range
+        if (labelsVersion != scale.version()) {
+            labelsVersion = scale.version();
             labels.clear();
-            final String f = "0";
-            labels.add(f);
-            final float max = parse(label(maximum));
 
-            final int count = max % 3 == 0 ? 3 : 2;
-
-            float i = 1;
-            gTextPaint.getTextBounds(f, 0, f.length(), textRect);
-            int width = textRect.width();
-            while (i <= count) {
-                final String label = label((i++ / count) * maximum);
+            int width = 0;
+            final int count = scale.intervals();
+            for (int i = 0; i <= count; i++) {
+                final float tick = scale.tick(i);
+                final String label = tick == 0 ? "0" : label(tick, scale.step());
                 gTextPaint.getTextBounds(label, 0, label.length(), textRect);
                 labels.add(label);
 
@@ -1052,12 +2440,12 @@ public class GraphView extends View {
                     width = textRect.width();
                 }
             }
-            width += SPACE;
-            bounds.left = mRect.left + width;
-
-            weirdBounds.set(bounds);
-            weirdBounds.offset(0, -bounds.bottom);
+            labelsWidth = width + SPACE;
         }
+
+        bounds.left = mRect.left + labelsWidth;
+        weirdBounds.set(bounds);
+        weirdBounds.offset(0, -bounds.bottom);
     }
 
     void xAxisLabels() {
@@ -1065,14 +2453,9 @@ public class GraphView extends View {
             return;
         }
 
-        float width = bounds.width();
-
-        Plot firstPlot = data.lines.values().toArray(new Plot[0])[0];
-        XAxisLabel first = new XAxisLabel(findCoordinate(firstPlot.coordinates, actualX(.3f * width)));
-        XAxisLabel last = new XAxisLabel(findCoordinate(firstPlot.coordinates, actualX(.7f * width)));
-        xAxisLabels.clear();
-        xAxisLabels.add(first);
-        xAxisLabels.add(last);
+        if (xAxisTicks == null) xAxisTicks = new XAxisTicks(style.xLabelWidths, labelGraphSpace * .5f);
+        //this is a no-op unless the period, the range or the width has changed
+        xAxisTicks.compute(data.period, data.minx, data.max.x, bounds.width(), bounds.left - mRect.left);
     }
 
     protected float drawingX(float actualX) {
@@ -1084,7 +2467,71 @@ public class GraphView extends View {
     }
 
     protected float drawingY(float actualY) {
-        return actualY * multiplier.y;
+        return (actualY - scale.min()) * multiplier.y;
+    }
+
+    /**
+     * The points of a plot and the ranges it's drawn against as they were when a refinement
+     * started, so that finer levels of its geometry can be built on another thread. Points that
+     * are added in the meantime cancel the refinement.
+     */
+    private static final class Refinement {
+        final Plot plot;
+        final int version;
+        final float[] xs;
+        final float[] ys;
+        final int size;
+        final float[] ranges;
+        //the latest level, taken from the GeometryPool
+        float[] points;
+
+        Refinement(@NonNull Plot plot) {
+            this.plot = plot;
+            version = plot.version;
+            xs = plot.xs;
+            ys = plot.ys;
+            size = plot.size;
+            ranges = plot.normalizedFor.clone();
+        }
+
+        /**
+         * @return the number of points of the plot decimated to the columns
+         */
+        int level(int columns) {
+            points = GeometryPool.get().floats(Decimator.capacity(size, columns));
+            return Plot.level(xs, ys, size, ranges, columns, points);
+        }
+    }
+
+    /**
+     * The tooltip of a set of points formatted and measured, so that it's drawn without any
+     * formatting or measuring
+     */
+    private static final class Tooltip {
+        final int[] indices;
+        final List<Best> bests = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        final Coordinate touched = new Coordinate(0, 0);
+        //The area of the text and the container drawn with the shadow around it
+        final RectF box = new RectF();
+        final RectF container = new RectF();
+        //Each line is drawn as a prefix followed by a value in bold, the date has no value
+        String[] prefixes;
+        String[] values;
+        float[] valueOffsets;
+        float[] advances;
+
+        Tooltip(int[] indices) {
+            this.indices = indices;
+        }
+
+        boolean matches(int[] indices, int count) {
+            if (count != this.indices.length) return false;
+            for (int i = 0; i < count; i++) {
+                if (indices[i] != this.indices[i]) return false;
+            }
+            return true;
+        }
     }
 
     protected static class Best {
@@ -1162,29 +2609,182 @@ public class GraphView extends View {
         };
     }
 
+    /**
+     * The bitmap a plot is rasterized into by the {@link #RENDERER_LAYERS} renderer. The keys
+     * identify the state of the plot and the bounds that were requested and last rasterized.
+     */
+    private static final class Layer {
+        Bitmap bitmap;
+        int padding;
+        //what the layer was last rasterized for and what its bitmap shows
+        @Nullable
+        LayerKey requested;
+        @Nullable
+        LayerKey rendered;
+        boolean released;
+
+        void release(@Nullable BitmapPool pool) {
+            released = true;
+            if (bitmap != null && pool != null) pool.release(bitmap);
+            bitmap = null;
+        }
+    }
+    /**
+     * Everything a {@link Layer}'s bitmap depends on, compared field by field so that a change is
+     * never mistaken for a hash collision
+     */
+    private static final class LayerKey {
+        final long content;
+        final int color;
+        final boolean selected;
+        final int layout;
+        final int detail;
+
+        LayerKey(long content, int color, boolean selected, int layout, int detail) {
+            this.content = content;
+            this.color = color;
+            this.selected = selected;
+            this.layout = layout;
+            this.detail = detail;
+        }
+
+        boolean matches(long content, int color, boolean selected, int layout, int detail) {
+            return this.content == content && this.color == color && this.selected == selected
+                    && this.layout == layout && this.detail == detail;
+        }
+    }
+
+
     /**
      * A utility class that holds the data used in the graph view.
      * To instantiate this view, use the {@link Graph.Builder}.
      */
     public static class Graph {
+        private static final AtomicInteger ids = new AtomicInteger();
+
         private final Period period;
         private final Map<String, Plot> lines;
+        @Nullable
+        private final Comparison comparison;
         private final Coordinate max = new Coordinate(Float.MIN_VALUE, Float.MIN_VALUE);
         private final float minx;
+        private final float miny;
         private final boolean isSingle;
+        private final long identity = ids.incrementAndGet();
+        @Nullable
+        private volatile Future<?> prefetch;
 
         protected Graph(@NonNull Period period, @NonNull Map<String, Plot> lines) {
+            this(period, lines, null);
+        }
+
+        protected Graph(@NonNull Period period, @NonNull Map<String, Plot> lines, @Nullable Comparison comparison) {
             this.period = period;
             this.lines = lines;
+            this.comparison = comparison;
             isSingle = lines.size() == 1;
             float minx = Float.MAX_VALUE;
+            float miny = Float.MAX_VALUE;
             for (final Plot plot : lines.values()) {
                 minx = Math.min(minx, plot.minx);
+                miny = Math.min(miny, plot.miny);
                 max.x = Math.max(plot.maxx, max.x);
                 max.y = Math.max(max.y, plot.maxy);
             }
+            if (comparison != null && comparison.size() > 0) {
+                miny = Math.min(miny, comparison.min);
+                max.y = Math.max(max.y, comparison.max);
+            }
 
             this.minx = minx;
+            this.miny = miny;
+        }
+
+        /**
+         * @return a value that changes whenever this graph is replaced or any of its plots has
+         * points added to it
+         */
+        public long version() {
+            long version = identity << 32;
+            for (final Plot plot : lines.values()) {
+                version += plot.version;
+            }
+            return version;
+        }
+
+        /**
+         * @return the comparison against the preceding period or null if none was set in the
+         * {@link Builder}
+         */
+        @Nullable
+        public Comparison getComparison() {
+            return comparison;
+        }
+
+        @NonNull
+        public Period getPeriod() {
+            return period;
+        }
+
+        @NonNull
+        Collection<Plot> plots() {
+            return lines.values();
+        }
+
+        /**
+         * Prepares the geometry of the plots that doesn't depend on the size of the graph they're
+         * drawn in, i.e. the points as primitives and the lines and the areas in unit coordinates,
+         * on a background thread. It's meant for data that's about to be bound, e.g. in a
+         * RecyclerView's prefetch window, {@link GraphView#bind(Graph)} waits for it to complete.
+         * No points may be added to the plots in the meantime.
+         */
+        @SuppressWarnings("unused")
+        public void prefetch() {
+            prefetch(true);
+        }
+
+        /**
+         * @param areas false if the data is about to be bound to a graph that doesn't draw the
+         *              areas under the lines, e.g. one whose graphSize is mini, so that they aren't
+         *              built
+         * @see #prefetch()
+         */
+        @SuppressWarnings("unused")
+        public void prefetch(boolean areas) {
+            if (prefetch == null) prefetch = RenderExecutor.get().submit(() -> prepare(areas));
+        }
+
+        private void prepare(boolean areas) {
+            //the same scale a graph fits to the data with none of the plots hidden
+            final NiceScale scale = new NiceScale(2, 3);
+            scale.compute(miny, max.y);
+            final float rangeX = max.x - minx;
+            for (final Plot plot : lines.values()) {
+                plot.contentHash();
+                plot.normalize(minx, rangeX, scale.min(), scale.range(), true, areas);
+            }
+            if (comparison != null) comparison.normalize(minx, rangeX, scale.min(), scale.range());
+        }
+
+        /**
+         * Waits for a {@link #prefetch()} to complete, the plots can then be used on this thread
+         */
+        private void awaitPrefetch() {
+            final Future<?> p = prefetch;
+            if (p == null) return;
+            prefetch = null;
+            try {
+                p.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                Timber.e(e.getCause(), "prefetch: failed");
+            }
+        }
+
+        @Nullable
+        Plot plot(String label) {
+            return lines.get(label);
         }
 
         /**
@@ -1196,6 +2796,8 @@ public class GraphView extends View {
 
             private Period period = Period.empty();
             private final Map<String, Plot> lines = new HashMap<>();
+            private String comparisonLabel;
+            private Plot comparison;
 
             private Builder() {
             }
@@ -1218,21 +2820,193 @@ public class GraphView extends View {
                 boolean shouldAddColour = plots.length > 1;
                 for (int i = 0, linesLength = plots.length; i < linesLength; i++) {
                     Plot plot = plots[i];
-                    if (shouldAddColour) plot.color = colors[i];
+                    if (shouldAddColour) plot.color = colors[i % colors.length];
                     this.lines.put(plot.label, plot);
                 }
 
                 return this;
             }
 
+            /**
+             * Sets the values of the period preceding this graph's {@link Period} so that it's
+             * drawn as an overlay against the graph's only plot.
+             *
+             * @param previous the plot whose x values are indices of the preceding period
+             */
+            @Contract("_ -> this")
+            public Builder setComparison(@NonNull Plot previous) {
+                return setComparison(null, previous);
+            }
+
+            /**
+             * Sets the values of the period preceding this graph's {@link Period} so that it's
+             * drawn as an overlay against the plot with the given label.
+             *
+             * @param label    the label of the plot that's compared, may be null if the graph
+             *                 contains a single plot
+             * @param previous the plot whose x values are indices of the preceding period
+             */
+            @Contract("_, _ -> this")
+            public Builder setComparison(@Nullable String label, @NonNull Plot previous) {
+                comparisonLabel = label;
+                comparison = previous;
+                return this;
+            }
+
             @NonNull
             @Contract(" -> new")
             public Graph build() {
                 if (lines.isEmpty()) {
                     throw new IllegalArgumentException("The graph cannot contain empty lines!");
                 }
-                return new Graph(period, lines);
+                return new Graph(period, lines, comparison());
+            }
+
+            @Nullable
+            private Comparison comparison() {
+                if (comparison == null) return null;
+
+                final Plot current;
+                if (comparisonLabel != null) {
+                    current = lines.get(comparisonLabel);
+                } else if (lines.size() == 1) {
+                    current = lines.values().iterator().next();
+                } else {
+                    throw new IllegalArgumentException("The label of the compared plot is required when the graph has more than one plot");
+                }
+                if (current == null) {
+                    throw new IllegalArgumentException("Unidentified comparison label: " + comparisonLabel);
+                }
+                return new Comparison(current, comparison);
+            }
+        }
+    }
+
+    /**
+     * Holds the values of a {@link Plot} aligned by period index against the values of the
+     * preceding period, together with the path of the preceding period's values and the area
+     * between the two curves. To create an instance use {@link Graph.Builder#setComparison(Plot)}.
+     */
+    public static class Comparison {
+        private final Plot current;
+        /**
+         * The period indices common to both periods
+         */
+        private final float[] xs;
+        private final float[] values;
+        private final float[] previous;
+        /**
+         * The current value less the previous one at each of the {@link #xs}
+         */
+        private final float[] delta;
+        private final int size;
+        private final float min;
+        private final float max;
+        private final float sum;
+
+        private final Path line = new Path();
+        private final Path area = new Path();
+        private final Path unitLine = new Path();
+        private final Path unitArea = new Path();
+        private final float[] normalizedFor = {Float.NaN, Float.NaN, Float.NaN, Float.NaN};
+        //The colour the overlay is drawn in, see GraphView#compare()
+        private int color;
+
+        private Comparison(@NonNull Plot current, @NonNull Plot previous) {
+            this.current = current;
+            color = current.color;
+            final int capacity = Math.min(current.coordinates.size(), previous.coordinates.size());
+            xs = new float[capacity];
+            values = new float[capacity];
+            this.previous = new float[capacity];
+            delta = new float[capacity];
+
+            //both sets are sorted by x so they're aligned by walking them together once
+            final Iterator<Coordinate> c = current.coordinates.iterator();
+            final Iterator<Coordinate> p = previous.coordinates.iterator();
+            int i = 0;
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE, sum = 0;
+            Coordinate a = c.hasNext() ? c.next() : null;
+            Coordinate b = p.hasNext() ? p.next() : null;
+            while (a != null && b != null) {
+                final int compare = Float.compare(a.x, b.x);
+                if (compare == 0) {
+                    xs[i] = a.x;
+                    values[i] = a.y;
+                    this.previous[i] = b.y;
+                    delta[i] = a.y - b.y;
+                    min = Math.min(min, Math.min(a.y, b.y));
+                    max = Math.max(max, Math.max(a.y, b.y));
+                    sum += delta[i];
+                    i++;
+                }
+                if (compare <= 0) a = c.hasNext() ? c.next() : null;
+                if (compare >= 0) b = p.hasNext() ? p.next() : null;
             }
+            size = i;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+        }
+
+        /**
+         * @return the number of period indices found in both periods
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the period index of the i-th aligned value
+         */
+        public float index(int i) {
+            return xs[i];
+        }
+
+        public float previous(int i) {
+            return previous[i];
+        }
+
+        public float delta(int i) {
+            return delta[i];
+        }
+
+        @NonNull
+        public Plot getCurrent() {
+            return current;
+        }
+
+        /**
+         * Builds the path of the previous period's values and the area between the two curves in
+         * unit coordinates, unless they're already built for the given ranges
+         */
+        private void normalize(float minx, float rangeX, float miny, float rangeY) {
+            if (!rangeChanged(normalizedFor, minx, rangeX, miny, rangeY)) return;
+            unitLine.rewind();
+            unitArea.rewind();
+            if (size == 0) return;
+
+            final float sx = rangeX == 0 ? 0 : 1 / rangeX, sy = rangeY == 0 ? 0 : 1 / rangeY;
+            unitLine.moveTo((xs[0] - minx) * sx, (previous[0] - miny) * sy);
+            unitArea.moveTo((xs[0] - minx) * sx, (values[0] - miny) * sy);
+            for (int i = 1; i < size; i++) {
+                final float x = (xs[i] - minx) * sx;
+                unitLine.lineTo(x, (previous[i] - miny) * sy);
+                unitArea.lineTo(x, (values[i] - miny) * sy);
+            }
+            //walk back along the previous period's values to enclose the area between the two curves
+            for (int i = size - 1; i >= 0; i--) {
+                unitArea.lineTo((xs[i] - minx) * sx, (previous[i] - miny) * sy);
+            }
+            unitArea.close();
+        }
+
+        /**
+         * @return true if the current period's aligned values add up to at least the previous
+         * period's
+         */
+        public boolean isRising() {
+            return sum >= 0;
         }
     }
 
@@ -1240,6 +3014,9 @@ public class GraphView extends View {
      * A utility class that holds values for a graph object that's used by the {@link GraphView}
      */
     public static class Plot implements Parcelable {
+        private static final float[] NONE = new float[0];
+        //The detail of a line built from all of its points
+        private static final int FULL_DETAIL = Integer.MAX_VALUE;
 
         private final SmoothingMode smoothingMode;
         private final boolean smoothenGraph;
@@ -1247,14 +3024,48 @@ public class GraphView extends View {
         public String label;
         private float maxx;
         private float minx = Float.MAX_VALUE;
+        private float miny;
         private float maxy;
         private final TreeSet<Coordinate> coordinates;
         private final int smoothingThreshold;
+        private final TrendStatistics statistics = new TrendStatistics();
+        private int version;
 
         private int color;
 
-        private final Path line = new Path();
-        private final Path areaUnderGraph = new Path();
+        //The geometry is taken from the GeometryPool as it's needed and returned to it once the
+        //plot is released. The line and the area are only built for the graphs that draw them
+        //from paths, see #normalize(float, float, float, float, boolean, boolean)
+        @Nullable
+        private Path line;
+        @Nullable
+        private Path areaUnderGraph;
+
+        //The points of the plot as primitives ordered by x
+        private float[] xs = NONE;
+        private float[] ys = NONE;
+        private int size;
+        private int snapshotVersion = -1;
+        private long hash;
+        private int hashVersion = -1;
+
+        //The line and the area under it in unit coordinates i.e. both x and y are between 0 and 1
+        @Nullable
+        private Path unitLine;
+        @Nullable
+        private Path unitArea;
+        private final float[] normalizedFor = {Float.NaN, Float.NaN, Float.NaN, Float.NaN};
+        private int normalizedVersion = -1;
+        //The same points as the unit line interleaved, and their decimated drawing coordinates
+        private float[] unitPoints = NONE;
+        private int unitCount;
+        private float[] mapped = NONE;
+        private float[] screen = NONE;
+        private int screenCount;
+        //How many points the unit line is first built from, zero to build it from all of them,
+        //and the columns it has been decimated to since, see GraphView#setProgressive(boolean)
+        private int coarse;
+        private int detail;
 
         private Plot(String label,
                      boolean hasCurrency,
@@ -1270,6 +3081,7 @@ public class GraphView extends View {
             this.smoothenGraph = smoothenGraph;
 
             smoothenGraph();
+            statistics();
         }
 
         protected Plot(Parcel in) {
@@ -1286,6 +3098,8 @@ public class GraphView extends View {
             this.coordinates.addAll(coordinates);
             smoothingThreshold = in.readInt();
             color = in.readInt();
+            statistics();
+            extremes();
         }
 
         @Override
@@ -1372,7 +3186,14 @@ public class GraphView extends View {
         }
 
         public void add(float x, float y) {
-            coordinates.add(new Coordinate(x, y));
+            if (coordinates.add(new Coordinate(x, y))) {
+                statistics.add(x, y);
+                minx = Math.min(minx, x);
+                maxx = Math.max(maxx, x);
+                miny = Math.min(miny, y);
+                maxy = Math.max(maxy, y);
+                version++;
+            }
         }
 
         @SuppressWarnings("unused")
@@ -1380,6 +3201,406 @@ public class GraphView extends View {
             add((float) x, (float) y);
         }
 
+        /**
+         * Copies the coordinates into the primitive arrays unless no point was added since the
+         * last copy
+         */
+        private void snapshot() {
+            if (snapshotVersion == version) return;
+            snapshotVersion = version;
+
+            size = coordinates.size();
+            xs = grow(xs, size);
+            ys = grow(ys, size);
+            int i = 0;
+            for (Coordinate c : coordinates) {
+                xs[i] = c.x;
+                ys[i++] = c.y;
+            }
+        }
+
+        /**
+         * Builds the line and the area under it in unit coordinates. This is only done when
+         * points have been added or the ranges the plot is drawn against have changed. A plot that
+         * is drawn progressively is built from some of its points, or decimated to the columns it
+         * has been refined to, see {@link GraphView#setProgressive(boolean)}.
+         *
+         * @param line false if the line isn't drawn from a path, it is then dropped rather than
+         *             built and only the points are
+         * @param area false if the area isn't drawn from a path, it is then dropped rather than
+         *             built
+         */
+        private void normalize(float minx, float rangeX, float miny, float rangeY, boolean line, boolean area) {
+            snapshot();
+            final boolean changed = rangeChanged(normalizedFor, minx, rangeX, miny, rangeY);
+            if (!changed && normalizedVersion == version
+                    && line == (unitLine != null) && area == (unitArea != null)) return;
+            normalizedVersion = version;
+
+            final GeometryPool pool = GeometryPool.get();
+            if (line) {
+                if (unitLine == null) unitLine = pool.path();
+                unitLine.rewind();
+            } else {
+                if (unitLine != null) pool.release(unitLine);
+                if (this.line != null) pool.release(this.line);
+                unitLine = null;
+                this.line = null;
+            }
+            if (area) {
+                if (unitArea == null) unitArea = pool.path();
+                unitArea.rewind();
+            } else {
+                if (unitArea != null) pool.release(unitArea);
+                if (areaUnderGraph != null) pool.release(areaUnderGraph);
+                unitArea = null;
+                areaUnderGraph = null;
+            }
+            unitCount = 0;
+            if (size == 0) {
+                detail = FULL_DETAIL;
+                return;
+            }
+
+            final float sx = rangeX == 0 ? 0 : 1 / rangeX, sy = rangeY == 0 ? 0 : 1 / rangeY;
+            if (coarse == 0 || size <= coarse) {
+                unitPoints = grow(unitPoints, 2 * size);
+                for (int i = 0; i < size; i++) {
+                    unitPoints[2 * i] = (xs[i] - minx) * sx;
+                    unitPoints[2 * i + 1] = (ys[i] - miny) * sy;
+                }
+                unitCount = size;
+                detail = FULL_DETAIL;
+            } else if (detail > 0 && detail != FULL_DETAIL) {
+                //a line that has been refined before isn't drawn any coarser
+                unitPoints = grow(unitPoints, Decimator.capacity(size, detail));
+                unitCount = level(xs, ys, size, normalizedFor, detail, unitPoints);
+            } else {
+                //every stride-th point and the last one
+                final int stride = (size + coarse - 1) / coarse;
+                unitPoints = grow(unitPoints, 2 * (coarse + 1));
+                for (int i = 0; i < size; i += stride) {
+                    unitPoints[2 * unitCount] = (xs[i] - minx) * sx;
+                    unitPoints[2 * unitCount++ + 1] = (ys[i] - miny) * sy;
+                }
+                if ((size - 1) % stride != 0) {
+                    unitPoints[2 * unitCount] = (xs[size - 1] - minx) * sx;
+                    unitPoints[2 * unitCount++ + 1] = (ys[size - 1] - miny) * sy;
+                }
+                detail = 0;
+            }
+            unitPaths();
+        }
+
+        /**
+         * Builds the unit line and the area under it through the unit points, whichever of them
+         * is drawn from a path
+         */
+        private void unitPaths() {
+            if (unitLine != null) unitLine.rewind();
+            if (unitArea != null) unitArea.rewind();
+            final Path path = unitLine != null ? unitLine : unitArea;
+            if (unitCount == 0 || path == null) return;
+
+            final float first = unitPoints[0];
+            path.moveTo(first, unitPoints[1]);
+            for (int i = 1; i < unitCount; i++) {
+                path.lineTo(unitPoints[2 * i], unitPoints[2 * i + 1]);
+            }
+
+            if (unitArea == null) return;
+            if (path != unitArea) unitArea.set(unitLine);
+            unitArea.lineTo(unitPoints[2 * (unitCount - 1)], 0);
+            unitArea.lineTo(first, 0);
+            unitArea.close();
+        }
+
+        /**
+         * Sets how many points the unit line is first built from, see
+         * {@link GraphView#setProgressive(boolean)}
+         *
+         * @param coarse zero to build it from all the points
+         */
+        private void coarse(int coarse) {
+            //a line built from some of its points is built again from all of them
+            if (coarse == 0 && detail != FULL_DETAIL) normalizedVersion = -1;
+            this.coarse = coarse;
+        }
+
+        /**
+         * Replaces the unit points with a finer level of them built by
+         * {@link GraphView#refine(int)}, the points are taken over
+         */
+        private void refine(@NonNull float[] points, int count, int detail) {
+            GeometryPool.get().release(unitPoints);
+            unitPoints = points;
+            unitCount = count;
+            this.detail = detail;
+            unitPaths();
+        }
+
+        /**
+         * Normalizes the points like
+         * {@link #normalize(float, float, float, float, boolean, boolean)} and decimates them to
+         * the columns. Only the arguments are read so it can be called on any thread.
+         *
+         * @param ranges the minimum x, the range of x, the minimum y and the range of y
+         * @param out    holds at least {@link Decimator#capacity(int, int)} floats
+         * @return the number of points written to out
+         */
+        private static int level(@NonNull float[] xs, @NonNull float[] ys, int size,
+                                 @NonNull float[] ranges, int columns, @NonNull float[] out) {
+            final float minx = ranges[0], rangeX = ranges[1], miny = ranges[2], rangeY = ranges[3];
+            final float sx = rangeX == 0 ? 0 : 1 / rangeX, sy = rangeY == 0 ? 0 : 1 / rangeY;
+            final GeometryPool pool = GeometryPool.get();
+            final float[] unit = pool.floats(2 * size);
+            for (int i = 0; i < size; i++) {
+                unit[2 * i] = (xs[i] - minx) * sx;
+                unit[2 * i + 1] = (ys[i] - miny) * sy;
+            }
+            final int count = Decimator.decimate(unit, size, 0, 1, columns, out);
+            pool.release(unit);
+            return count;
+        }
+
+        @NonNull
+        private Path areaUnderGraph() {
+            if (areaUnderGraph == null) areaUnderGraph = GeometryPool.get().path();
+            return areaUnderGraph;
+        }
+
+        @NonNull
+        private Path line() {
+            if (line == null) line = GeometryPool.get().path();
+            return line;
+        }
+
+        /**
+         * @return the array if it holds the length, otherwise an array that does from the pool
+         * which the array is returned to
+         */
+        @NonNull
+        private static float[] grow(@NonNull float[] array, int length) {
+            if (array.length >= length) return array;
+            final GeometryPool pool = GeometryPool.get();
+            pool.release(array);
+            return pool.floats(length);
+        }
+
+        /**
+         * Maps the unit points to drawing coordinates and decimates them to the columns they're
+         * drawn across
+         */
+        private void layoutPoints(@NonNull Matrix geometry, float width, int columns) {
+            mapped = grow(mapped, 2 * unitCount);
+            geometry.mapPoints(mapped, 0, unitPoints, 0, unitCount);
+
+            final int capacity = Decimator.capacity(unitCount, columns);
+            screen = grow(screen, capacity);
+            screenCount = Decimator.decimate(mapped, unitCount, 0, width, columns, screen);
+        }
+
+        private void statistics() {
+            statistics.reset();
+            for (Coordinate c : coordinates) {
+                statistics.add(c.x, c.y);
+            }
+        }
+
+        /**
+         * @return the mean, first to last delta, percentage change and slope of this plot, kept up
+         * to date as points are added
+         */
+        @NonNull
+        public TrendStatistics getStatistics() {
+            return statistics;
+        }
+
+        /**
+         * @return true if the least-squares slope of this plot's values isn't negative
+         */
+        public boolean isRising() {
+            return statistics.isRising();
+        }
+
+        public int getColor() {
+            return color;
+        }
+
+        public float getMinX() {
+            return minx;
+        }
+
+        public float getMaxX() {
+            return maxx;
+        }
+
+        public float getMinY() {
+            return miny;
+        }
+
+        public float getMaxY() {
+            return maxy;
+        }
+
+        /**
+         * Fits the plot's line to the ranges and transforms it with the geometry, see
+         * {@link GraphView#generatePath()}
+         *
+         * @return the transformed line
+         */
+        @NonNull
+        Path line(@NonNull Matrix geometry, float minx, float rangeX, float miny, float rangeY) {
+            //the area is kept up to date if a graph draws it, it isn't built for the line alone
+            normalize(minx, rangeX, miny, rangeY, true, unitArea != null);
+            unitLine.transform(geometry, line());
+            return line;
+        }
+
+        /**
+         * @return the index of the point whose x value is the closest to x or -1 if the plot is
+         * empty
+         */
+        int indexOf(float x) {
+            snapshot();
+            if (size == 0) return -1;
+
+            int low = 0, high = size - 1;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (xs[mid] < x) low = mid + 1;
+                else high = mid;
+            }
+            if (low > 0 && x - xs[low - 1] <= xs[low] - x) low--;
+            return low;
+        }
+
+        /**
+         * @return the index of the point at x found in constant time when the points are at
+         * consecutive whole x values, e.g. the indices of a {@link Period}, otherwise the index of
+         * the closest point, see {@link #indexOf(float)}
+         */
+        int indexAt(float x) {
+            snapshot();
+            if (size == 0) return -1;
+
+            final int guess = Math.round(x - xs[0]);
+            if (guess >= 0 && guess < size && xs[guess] == x) return guess;
+            return indexOf(x);
+        }
+
+        /**
+         * @return the points ordered by x without copying them, they mustn't be modified other than
+         * through {@link #add(float, float)}
+         */
+        @NonNull
+        NavigableSet<Coordinate> coordinates() {
+            return coordinates;
+        }
+
+        /**
+         * @return the number of points in the plot
+         */
+        int size() {
+            snapshot();
+            return size;
+        }
+
+        /**
+         * @return a value that changes whenever a point is added to the plot
+         */
+        int version() {
+            return version;
+        }
+
+        /**
+         * @return a hash of the points, it's only recomputed once points have been added
+         */
+        long contentHash() {
+            if (hashVersion == version) return hash;
+            snapshot();
+            long h = size;
+            for (int i = 0; i < size; i++) {
+                h = 31 * h + Float.floatToIntBits(xs[i]);
+                h = 31 * h + Float.floatToIntBits(ys[i]);
+            }
+            hash = h;
+            hashVersion = version;
+            return h;
+        }
+
+        /**
+         * @return true if both plots have exactly the same points
+         */
+        private boolean sameContent(@NonNull Plot other) {
+            if (contentHash() != other.contentHash() || size != other.size) return false;
+            for (int i = 0; i < size; i++) {
+                if (xs[i] != other.xs[i] || ys[i] != other.ys[i]) return false;
+            }
+            return true;
+        }
+
+        /**
+         * Takes over the geometry of a plot with the same points, see
+         * {@link GraphView#initialise(Graph)}. The other plot is left without any geometry.
+         */
+        private void adopt(@NonNull Plot other) {
+            release(GeometryPool.get());
+            xs = other.xs;
+            ys = other.ys;
+            size = other.size;
+            snapshotVersion = version;
+            hash = other.hash;
+            hashVersion = version;
+
+            unitLine = other.unitLine;
+            unitArea = other.unitArea;
+            line = other.line;
+            areaUnderGraph = other.areaUnderGraph;
+            System.arraycopy(other.normalizedFor, 0, normalizedFor, 0, normalizedFor.length);
+            normalizedVersion = other.normalizedVersion == other.version ? version : -1;
+            unitPoints = other.unitPoints;
+            unitCount = other.unitCount;
+            detail = other.detail;
+            mapped = other.mapped;
+            screen = other.screen;
+            screenCount = other.screenCount;
+
+            other.forget();
+        }
+
+        /**
+         * Returns the geometry to the pool, it's generated again if the plot is drawn afterwards
+         */
+        private void release(@NonNull GeometryPool pool) {
+            for (float[] array : new float[][]{xs, ys, unitPoints, mapped, screen}) {
+                pool.release(array);
+            }
+            for (Path path : new Path[]{unitLine, unitArea, line, areaUnderGraph}) {
+                if (path != null) pool.release(path);
+            }
+            forget();
+        }
+
+        /**
+         * Drops the geometry without returning it to the pool, as it now belongs to another plot
+         */
+        private void forget() {
+            xs = ys = unitPoints = mapped = screen = NONE;
+            size = unitCount = screenCount = detail = 0;
+            snapshotVersion = hashVersion = normalizedVersion = -1;
+            unitLine = unitArea = line = areaUnderGraph = null;
+            Arrays.fill(normalizedFor, Float.NaN);
+        }
+
+        float x(int i) {
+            return xs[i];
+        }
+
+        float y(int i) {
+            return ys[i];
+        }
+
         //This method should be called once all the points are inserted
         private void minx() {
             minx = coordinates.first().x;
@@ -1390,28 +3611,16 @@ public class GraphView extends View {
             maxx = coordinates.last().x;
         }
 
-        //This method should be called once all the points are inserted
-        private void maxy() {
-            float max = Collections.max(coordinates, (o1, o2) -> Float.compare(o1.y, o2.y)).y;
-
-            //Ceil the float into an integer so as to get the whole numbers size which
-            //is achieved by converting the result int into a string, and consequently
-            //obtaining the ten to power length
-            final int length = String.valueOf((int) Math.ceil(max)).length();
-            //The multiplicand is the value the max will be rounded to
-            long multiplicand = (long) pow(10, length);
-
-            //The max should also be a value that can lets say greater than the initial max but
-            //if the difference is greater than a value for instance with the value 1102.0, the max
-            //currently will be 2000 but 1200 would be an ideal actually a better value.
-            //For a value 1509, 1600 would be the ideal maximum too.
-
-            //The graph doesn't occupy 80% of the graph area
-            do {
-                multiplicand /= 10;
-                maxy = (float) (ceil(max / multiplicand) * multiplicand);
-            } while ((max / maxy) < 0.8);
-
+        //This method should be called once all the points are inserted.
+        //The raw extremes are kept, rounding them off is left to the NiceScale of the view
+        private void extremes() {
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (Coordinate c : coordinates) {
+                min = Math.min(min, c.y);
+                max = Math.max(max, c.y);
+            }
+            miny = min;
+            maxy = max;
         }
 
         @SuppressWarnings("unused")
@@ -1500,7 +3709,7 @@ public class GraphView extends View {
                 plot.color = color;
                 plot.minx();
                 plot.maxx();
-                plot.maxy();
+                plot.extremes();
                 return plot;
             }
         }
@@ -1511,40 +3720,15 @@ public class GraphView extends View {
         }
     }
 
-    class XAxisLabel {
-        private final Coordinate coordinate = new Coordinate();
-        private final String value;
-        private final float textStartX;
-
-        XAxisLabel(@NonNull Coordinate coordinate) {
-            this.coordinate.x = coordinate.x;
-            this.coordinate.y = coordinate.y;
-            Date date = data.period.time(round(this.coordinate.x));
-            this.coordinate.x = drawingX(this.coordinate.x);
-            /*this.value = DateTimeFormatter.ofPattern("hh:mm").format(date)*/
-            if (data.period.unit == ChronoUnit.DAY)
-                this.value = DateFormat.getTimeInstance(DateFormat.SHORT).format(date);
-            else this.value = new SimpleDateFormat("dd MMM", Locale.getDefault()).format(date);
-            textStartX();
-            textStartX = r.left;
-        }
-
-        RectF r = new RectF();
-
-        void textStartX() {
-            Rect textBounds = new Rect();
-            mXLabelTextPaint.getTextBounds(value, 0, value.length(), textBounds);
-            r.set(textBounds);
-//            r.offset(-r.centerX(), 0);
-            r.offset(0, r.bottom);
-        }
-
-    }
-
     class GestureListener extends GestureDetector.SimpleOnGestureListener {
         @Override
         public boolean onSingleTapUp(@NonNull MotionEvent e) {
-            bests(e.getX());
+            final String key = keyAt(e.getX(), e.getY());
+            if (key != null) {
+                setPlotVisible(key, hidden.contains(key));
+                return true;
+            }
+            scrub(e);
             return true;
         }
 
@@ -1573,6 +3757,7 @@ public class GraphView extends View {
             if (touched.get()) {
                 //Clears the touched data
                 clearTouched();
+                if (crosshairGroup != null) crosshairGroup.cleared(GraphView.this);
                 return true;
             }
 
@@ -1581,7 +3766,9 @@ public class GraphView extends View {
 
         @Override
         public boolean onSingleTapConfirmed(@NonNull MotionEvent e) {
-            bests(e.getX());
+            //a tap on the key has already been handled in onSingleTapUp
+            if (keyAt(e.getX(), e.getY()) != null) return true;
+            scrub(e);
             return true;
         }
 
@@ -1592,18 +3779,19 @@ public class GraphView extends View {
             // => t = d/v
             // use t as the time btn the two animations
             // where d = diff btn the end-point from the start-point
-            bests(e2.getX());
+            scrub(e2);
             return true;
         }
 
         @Override
         public boolean onScroll(MotionEvent e1, @NonNull MotionEvent e2, float distanceX, float distanceY) {
-            bests(e2.getX());
+            scrub(e2);
             return true;
         }
 
         @Override
         public boolean onDown(@NonNull MotionEvent e) {
+            if (keyAt(e.getX(), e.getY()) != null) return true;
             final boolean isValid = validate(e);
             if (!isValid)
                 if (touched.get())
@@ -1636,6 +3824,18 @@ public class GraphView extends View {
          * @return true if current data set if > the former data set.
          */
         boolean onCompare();
+
+        /**
+         * Compares the trend of the given plot. This is only called when the data in the view
+         * changes and not on every frame. By default this delegates to {@link #onCompare()},
+         * {@link Plot#getStatistics()} can be used instead to avoid recomputing the trend.
+         *
+         * @param plot the plot whose colour is being decided
+         * @return true if the plot is on an upward trend
+         */
+        default boolean onCompare(@NonNull Plot plot) {
+            return onCompare();
+        }
     }
 
     public interface OnDataChangedListener {
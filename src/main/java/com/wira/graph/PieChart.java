@@ -1,6 +1,5 @@
 package com.wira.graph;
 
-import static android.graphics.Color.BLACK;
 import static android.graphics.Color.BLUE;
 import static android.graphics.Color.CYAN;
 import static android.graphics.Color.GREEN;
@@ -11,7 +10,6 @@ import static android.graphics.Color.parseColor;
 import static java.lang.String.format;
 
 import android.content.Context;
-import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Rect;
@@ -24,7 +22,6 @@ import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.graphics.ColorUtils;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -66,7 +63,10 @@ public class PieChart extends View {
 
     private final AtomicReference<String> total = new AtomicReference<>("");
 
-    private final Paint piePaint, keyPaint, textPaint, dividerPaint;
+    private final Paint piePaint, keyPaint, textPaint;
+    //shared with the other charts of the same style until customized
+    private Paint dividerPaint;
+    private final PieStyle style;
     private final RectF pieRect = new RectF(),
             pieBounds = new RectF(),
             miscellaneous = new RectF(),
@@ -86,34 +86,19 @@ public class PieChart extends View {
     public PieChart(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
 
-        TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PieChart, defStyleAttr, 0);
-        strokeWidth = a.getDimensionPixelSize(R.styleable.PieChart_pieStrokeWidth, getResources().getDimensionPixelSize(R.dimen.default_pieStrokeWidth));
-        padding = a.getDimensionPixelSize(R.styleable.PieChart_piePadding, getResources().getDimensionPixelSize(R.dimen.default_piePadding));
-        dividerPadding = a.getDimensionPixelSize(R.styleable.PieChart_piePadding, getResources().getDimensionPixelSize(R.dimen.default_piePadding));
-        space = a.getDimensionPixelSize(R.styleable.PieChart_pieGap, 5);
-
-        largeTextSize = getResources().getDimension(R.dimen.large_text_size);
-        float mediumTextSize = getResources().getDimension(R.dimen.medium_text_size);
-
-        piePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        piePaint.setStyle(Paint.Style.STROKE);
-        piePaint.setStrokeWidth(strokeWidth);
-        piePaint.setStrokeJoin(Paint.Join.ROUND);
-        piePaint.setStrokeCap(Paint.Cap.ROUND);
-
-        keyPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        keyPaint.setStyle(Paint.Style.FILL);
-
-        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        textPaint.setColor(ColorUtils.setAlphaComponent(a.getColor(R.styleable.PieChart_pieTextColor, BLACK), 229));
-        textPaint.setTextAlign(Paint.Align.LEFT);
-        textPaint.setTextSize(mediumTextSize);
-
-        dividerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        dividerPaint.setColor(ColorUtils.setAlphaComponent(a.getColor(R.styleable.PieChart_pieDividerColor, BLACK), 60));
-        dividerPaint.setStyle(Paint.Style.STROKE);
-
-        a.recycle();
+        //the attributes are resolved once for all the charts sharing them, see PieStyle
+        style = PieStyle.obtain(context, attrs, defStyleAttr);
+        strokeWidth = style.strokeWidth;
+        padding = style.padding;
+        dividerPadding = style.dividerPadding;
+        space = style.space;
+        largeTextSize = style.largeTextSize;
+
+        //these are changed while drawing so each chart has its own
+        piePaint = new Paint(style.piePaint);
+        keyPaint = new Paint(style.keyPaint);
+        textPaint = new Paint(style.textPaint);
+        dividerPaint = style.dividerPaint;
 //        genDummy();
     }
 
@@ -264,6 +249,16 @@ public class PieChart extends View {
         canvas.restore();
     }
 
+    /**
+     * Sets the color of the dividers between the keys
+     */
+    @SuppressWarnings("unused")
+    public void setDividerColor(int color) {
+        if (dividerPaint == style.dividerPaint) dividerPaint = new Paint(dividerPaint);
+        dividerPaint.setColor(color);
+        invalidate();
+    }
+
     public void add(@NonNull List<Pie> pies) {
         data.clear();
         add(pies.toArray(new Pie[0]));
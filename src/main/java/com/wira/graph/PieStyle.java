@@ -0,0 +1,76 @@
+package com.wira.graph;
+
+import static android.graphics.Color.BLACK;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.ColorUtils;
+
+import com.wira.graph.core.StyleCache;
+
+/**
+ * The styled attributes of a {@link PieChart} resolved once and shared by every chart inflated
+ * with the same theme, style and attributes. The divider paint is shared as it is, the other
+ * paints are changed while drawing and are prototypes that each chart copies. None of the paints
+ * may be modified.
+ */
+final class PieStyle {
+    private static final StyleCache<PieStyle> CACHE = new StyleCache<>();
+
+    final int strokeWidth;
+    final int padding;
+    final int dividerPadding;
+    final int space;
+    final float largeTextSize;
+
+    //shared
+    final Paint dividerPaint;
+
+    //prototypes
+    final Paint piePaint;
+    final Paint keyPaint;
+    final Paint textPaint;
+
+    @NonNull
+    static PieStyle obtain(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        return CACHE.get(context, attrs, defStyleAttr, () -> new PieStyle(context, attrs, defStyleAttr));
+    }
+
+    private PieStyle(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        final Resources res = context.getResources();
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.PieChart, defStyleAttr, 0);
+        strokeWidth = a.getDimensionPixelSize(R.styleable.PieChart_pieStrokeWidth, res.getDimensionPixelSize(R.dimen.default_pieStrokeWidth));
+        padding = a.getDimensionPixelSize(R.styleable.PieChart_piePadding, res.getDimensionPixelSize(R.dimen.default_piePadding));
+        dividerPadding = a.getDimensionPixelSize(R.styleable.PieChart_piePadding, res.getDimensionPixelSize(R.dimen.default_piePadding));
+        space = a.getDimensionPixelSize(R.styleable.PieChart_pieGap, 5);
+
+        largeTextSize = res.getDimension(R.dimen.large_text_size);
+        final float mediumTextSize = res.getDimension(R.dimen.medium_text_size);
+
+        piePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        piePaint.setStyle(Paint.Style.STROKE);
+        piePaint.setStrokeWidth(strokeWidth);
+        piePaint.setStrokeJoin(Paint.Join.ROUND);
+        piePaint.setStrokeCap(Paint.Cap.ROUND);
+
+        keyPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        keyPaint.setStyle(Paint.Style.FILL);
+
+        textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        textPaint.setColor(ColorUtils.setAlphaComponent(a.getColor(R.styleable.PieChart_pieTextColor, BLACK), 229));
+        textPaint.setTextAlign(Paint.Align.LEFT);
+        textPaint.setTextSize(mediumTextSize);
+
+        dividerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        dividerPaint.setColor(ColorUtils.setAlphaComponent(a.getColor(R.styleable.PieChart_pieDividerColor, BLACK), 60));
+        dividerPaint.setStyle(Paint.Style.STROKE);
+
+        a.recycle();
+    }
+}
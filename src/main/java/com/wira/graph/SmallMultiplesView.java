@@ -0,0 +1,404 @@
+package com.wira.graph;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wira.graph.GraphView.Graph;
+import com.wira.graph.GraphView.Plot;
+import com.wira.graph.core.BitmapPool;
+import com.wira.graph.core.NiceScale;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Draws many small plots in a grid within a single view, e.g. for dashboards that would otherwise
+ * need a {@link GraphView} per plot. Every cell shows the label and the latest value of its plot
+ * above its line, the lines share the x-axis of all the plots and each is fitted to its own
+ * y-axis with a {@link NiceScale}. The paints are those of a {@link GraphView} inflated with the
+ * same style.
+ * </p>
+ *
+ * <p>
+ * The line of each cell is rendered by a {@link SparklineRenderer} into its own bitmap which is
+ * kept until the plot's points or the shared x-axis change, so after points are added to some of
+ * the plots {@link #invalidate()} only re-renders their cells. Cells outside of the visible part
+ * of the view, e.g. when it's placed in a scroll container, are neither rendered nor drawn.
+ * </p>
+ *
+ * <p>
+ * Scrubbing across any of the cells moves a crosshair through all of them at the same x value,
+ * which is resolved once per touch to a point of the first plot. The points of the other plots are
+ * then found at it in constant time if they share its x values, e.g. the indices of a period,
+ * otherwise the closest ones are.
+ * </p>
+ */
+public class SmallMultiplesView extends View {
+    private static final int DEFAULT_COLUMNS = 3;
+    //the height of a cell's line relative to its width
+    private static final float ASPECT_RATIO = 0.5f;
+    private static final long POOL_BYTES = 4 * 1024 * 1024;
+
+    private final GraphStyle style;
+    private final SparklineRenderer sparklines;
+    private final Paint dotPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float gap;
+    private final float header;
+    private final float inset;
+
+    private final BitmapPool pool = new BitmapPool(POOL_BYTES);
+    private final Canvas canvas = new Canvas();
+    private final Rect visible = new Rect();
+    private final float[] yAxis = new float[2];
+    private float[] xs = new float[0];
+    private float[] ys = new float[0];
+
+    private final List<Cell> cells = new ArrayList<>();
+    private int columns = DEFAULT_COLUMNS;
+    private float cellWidth;
+    private float lineHeight;
+    private int firstRow;
+    private int lastRow = -1;
+    private float minx;
+    private float rangeX;
+    //the x value of the point the crosshair is at or NaN if there's none
+    private float scrubX = Float.NaN;
+    @Nullable
+    private GestureDetector detector;
+
+    //cells scrolled into view are only drawn once the view is invalidated
+    private final ViewTreeObserver.OnScrollChangedListener onScrollChanged = () -> {
+        if (cells.isEmpty()) return;
+        if (!getLocalVisibleRect(visible)) return;
+        if (row(visible.top) < firstRow || row(visible.bottom) > lastRow) invalidate();
+    };
+
+    public SmallMultiplesView(Context context) {
+        this(context, null);
+    }
+
+    public SmallMultiplesView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public SmallMultiplesView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        style = GraphStyle.obtain(context, attrs, defStyleAttr);
+        //the cells keep their own bitmaps so the renderer doesn't cache any
+        sparklines = new SparklineRenderer(style.strokeWidth, false, 0);
+        dotPaint.setStyle(Paint.Style.FILL);
+        gap = style.textSize;
+        header = style.textSize * 1.5f;
+        //the line is inset by half its width so that it isn't clipped at the edges of its bitmap
+        inset = style.strokeWidth / 2;
+    }
+
+    /**
+     * Shows a cell for each plot of the graph
+     */
+    public void setGraph(@NonNull Graph graph) {
+        setPlots(new ArrayList<>(graph.plots()));
+    }
+
+    /**
+     * Shows a cell for each of the plots in the given order. The cells of plots that were already
+     * shown keep their rendered lines.
+     */
+    public void setPlots(@NonNull List<Plot> plots) {
+        final Map<Plot, Cell> old = new IdentityHashMap<>();
+        for (Cell cell : cells) {
+            old.put(cell.plot, cell);
+        }
+
+        final int rows = rows();
+        cells.clear();
+        for (Plot plot : plots) {
+            final Cell cell = old.remove(plot);
+            cells.add(cell != null ? cell : new Cell(plot));
+        }
+        for (Cell cell : old.values()) {
+            cell.release(pool);
+        }
+
+        if (rows() != rows) requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Sets the number of cells in each row of the grid
+     */
+    @SuppressWarnings("unused")
+    public void setColumns(int columns) {
+        if (columns <= 0) {
+            throw new IllegalArgumentException("Invalid number of columns: " + columns);
+        }
+        if (this.columns == columns) return;
+        this.columns = columns;
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Removes the crosshair
+     */
+    public void clearScrub() {
+        if (Float.isNaN(scrubX)) return;
+        scrubX = Float.NaN;
+        invalidate();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(onScrollChanged);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnScrollChangedListener(onScrollChanged);
+        for (Cell cell : cells) {
+            cell.release(pool);
+        }
+        pool.clear();
+        lastRow = -1;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int width = MeasureSpec.getSize(widthMeasureSpec);
+        measureCells(width);
+
+        final int rows = rows();
+        final float height = rows * (header + lineHeight) + Math.max(0, rows - 1) * gap
+                + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(width, resolveSize((int) Math.ceil(height), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        measureCells(w);
+        //the bitmaps of the old size are of no use anymore
+        for (Cell cell : cells) {
+            cell.release(pool);
+        }
+        pool.clear();
+    }
+
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        if (cells.isEmpty()) return false;
+        if (detector == null) detector = new GestureDetector(getContext(), new GestureListener());
+        final boolean result = detector.onTouchEvent(event);
+        if (result) performClick();
+        return result;
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    protected void onDraw(Canvas c) {
+        super.onDraw(c);
+
+        if (cells.isEmpty() || cellWidth <= 0 || !getLocalVisibleRect(visible)) {
+            lastRow = -1;
+            return;
+        }
+
+        domain();
+        final int width = (int) Math.ceil(cellWidth), height = (int) Math.ceil(lineHeight);
+        firstRow = row(visible.top);
+        lastRow = row(visible.bottom);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = 0; column < columns; column++) {
+                final int index = row * columns + column;
+                if (index >= cells.size()) return;
+
+                final Cell cell = cells.get(index);
+                final float left = getPaddingLeft() + column * (cellWidth + gap);
+                final float top = getPaddingTop() + row * (header + lineHeight + gap);
+                if (cell.isStale(minx, rangeX, width, height)) render(cell, width, height);
+                draw(c, cell, left, top);
+            }
+        }
+    }
+
+    private void draw(@NonNull Canvas c, @NonNull Cell cell, float left, float top) {
+        final Plot plot = cell.plot;
+        final int size = plot.size();
+        final int i = Float.isNaN(scrubX) ? size - 1 : plot.indexAt(scrubX);
+
+        final Paint text = style.guidesTextPaint;
+        final float baseline = top + style.textSize;
+        if (plot.label != null) c.drawText(plot.label, left, baseline, text);
+        if (i >= 0) {
+            final String value = GraphView.label(plot.y(i));
+            c.drawText(value, left + cellWidth - text.measureText(value), baseline, text);
+        }
+
+        top += header;
+        if (cell.bitmap != null) c.drawBitmap(cell.bitmap, left, top, null);
+
+        if (Float.isNaN(scrubX) || i < 0) return;
+        final float x = left + inset + (rangeX == 0 ? 0 : (plot.x(i) - minx) * (cellWidth - 2 * inset) / rangeX);
+        final float h = lineHeight - 2 * inset;
+        final float y = top + inset + h - (cell.rangeY == 0 ? 0 : (plot.y(i) - cell.miny) * h / cell.rangeY);
+        c.drawLine(x, top, x, top + lineHeight, style.xLinePaint);
+        dotPaint.setColor(plot.getColor());
+        c.drawCircle(x, y, style.radius, dotPaint);
+    }
+
+    /**
+     * Renders the cell's line into its bitmap with the {@link SparklineRenderer} against the
+     * x-axis shared by the cells
+     */
+    private void render(@NonNull Cell cell, int width, int height) {
+        if (cell.bitmap == null) cell.bitmap = pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+        else cell.bitmap.eraseColor(Color.TRANSPARENT);
+        cell.minx = minx;
+        cell.rangeX = rangeX;
+
+        final Plot plot = cell.plot;
+        final int count = plot.size();
+        cell.version = plot.version();
+        if (count == 0) return;
+
+        if (xs.length < count) {
+            xs = new float[count];
+            ys = new float[count];
+        }
+        for (int i = 0; i < count; i++) {
+            xs[i] = plot.x(i);
+            ys[i] = plot.y(i);
+        }
+
+        canvas.setBitmap(cell.bitmap);
+        sparklines.draw(canvas, width, height, xs, ys, count, plot.getColor(), minx, rangeX, yAxis);
+        canvas.setBitmap(null);
+        cell.miny = yAxis[0];
+        cell.rangeY = yAxis[1];
+    }
+
+    /**
+     * Finds the range of x values shared by all the cells
+     */
+    private void domain() {
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (Cell cell : cells) {
+            if (cell.plot.size() == 0) continue;
+            min = Math.min(min, cell.plot.getMinX());
+            max = Math.max(max, cell.plot.getMaxX());
+        }
+        minx = min == Float.MAX_VALUE ? 0 : min;
+        rangeX = min == Float.MAX_VALUE ? 0 : max - min;
+    }
+
+    private void measureCells(int width) {
+        final float content = width - getPaddingLeft() - getPaddingRight() - (columns - 1) * gap;
+        cellWidth = Math.max(0, content / columns);
+        lineHeight = cellWidth * ASPECT_RATIO;
+    }
+
+    private int rows() {
+        return (cells.size() + columns - 1) / columns;
+    }
+
+    /**
+     * @return the row at the given y, clamped to the rows of the grid
+     */
+    private int row(int y) {
+        final int row = (int) ((y - getPaddingTop()) / (header + lineHeight + gap));
+        return Math.max(0, Math.min(rows() - 1, row));
+    }
+
+    /**
+     * Moves the crosshair to the x value under the touch, taken relative to the cell it's in
+     */
+    private void scrub(@NonNull MotionEvent e) {
+        final float stride = cellWidth + gap;
+        final int column = Math.max(0, Math.min(columns - 1, (int) ((e.getX() - getPaddingLeft()) / stride)));
+        final float offset = e.getX() - getPaddingLeft() - column * stride - inset;
+        final float fraction = Math.max(0, Math.min(1, offset / (cellWidth - 2 * inset)));
+        final float x = minx + fraction * rangeX;
+
+        //the crosshair snaps to the closest point of the first plot that has any
+        for (Cell cell : cells) {
+            final int i = cell.plot.indexOf(x);
+            if (i < 0) continue;
+            scrubX = cell.plot.x(i);
+            invalidate();
+            return;
+        }
+    }
+
+    private static final class Cell {
+        final Plot plot;
+        @Nullable
+        Bitmap bitmap;
+        //what the bitmap was rendered with
+        int version = -1;
+        float minx;
+        float rangeX;
+        float miny;
+        float rangeY;
+
+        Cell(@NonNull Plot plot) {
+            this.plot = plot;
+        }
+
+        boolean isStale(float minx, float rangeX, int width, int height) {
+            return bitmap == null || bitmap.getWidth() != width || bitmap.getHeight() != height
+                    || version != plot.version() || this.minx != minx || this.rangeX != rangeX;
+        }
+
+        void release(@NonNull BitmapPool pool) {
+            if (bitmap != null) pool.release(bitmap);
+            bitmap = null;
+        }
+    }
+
+    class GestureListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onDown(@NonNull MotionEvent e) {
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapConfirmed(@NonNull MotionEvent e) {
+            scrub(e);
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, @NonNull MotionEvent e2, float distanceX, float distanceY) {
+            scrub(e2);
+            return true;
+        }
+
+        @Override
+        public boolean onDoubleTap(@NonNull MotionEvent e) {
+            clearScrub();
+            return true;
+        }
+    }
+}
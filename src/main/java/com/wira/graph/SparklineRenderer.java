@@ -0,0 +1,316 @@
+package com.wira.graph;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.wira.graph.core.BitmapPool;
+import com.wira.graph.core.Decimator;
+import com.wira.graph.core.NiceScale;
+import com.wira.graph.core.RenderExecutor;
+import com.wira.graph.core.VertexRenderer;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Draws small trend lines without a view, e.g. for the thumbnails of a list, onto a canvas or
+ * into a bitmap on any thread. The lines are scaled like those of a {@link GraphView}, the y-axis
+ * is fitted with the same {@link NiceScale} and lines with more points than the sparkline has
+ * pixels are decimated with the {@link Decimator}.
+ * <p>
+ * Bitmaps are either rendered afresh from a pool, in which case they should be given back with
+ * {@link #release(Bitmap)} once they're no longer drawn, or taken from a cache keyed by the
+ * version of the data, the size and the color, in which case they belong to the cache and must
+ * not be released or drawn on. Bitmaps evicted from the cache are left to the garbage collector
+ * as they may still be displayed.
+ * </p>
+ */
+public class SparklineRenderer {
+    private static final long POOL_BYTES = 4 * 1024 * 1024;
+    private static final int CACHE_BYTES = 8 * 1024 * 1024;
+
+    private final float strokeWidth;
+    private final boolean area;
+    private final BitmapPool pool = new BitmapPool(POOL_BYTES);
+    @Nullable
+    private final LruCache<Key, Bitmap> cache;
+    private final Handler main = new Handler(Looper.getMainLooper());
+    //the buffers and paints each thread draws with
+    private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch(strokeWidth);
+        }
+    };
+
+    public SparklineRenderer(float strokeWidth) {
+        this(strokeWidth, false, CACHE_BYTES);
+    }
+
+    /**
+     * @param area       whether the area under the line is filled
+     * @param cacheBytes the size of the cache of rendered bitmaps, zero disables it
+     */
+    public SparklineRenderer(float strokeWidth, boolean area, int cacheBytes) {
+        if (strokeWidth <= 0) {
+            throw new IllegalArgumentException("Invalid stroke width: " + strokeWidth);
+        }
+        if (cacheBytes < 0) {
+            throw new IllegalArgumentException("Invalid cache size: " + cacheBytes);
+        }
+        this.strokeWidth = strokeWidth;
+        this.area = area;
+        cache = cacheBytes == 0 ? null : new LruCache<Key, Bitmap>(cacheBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Draws the line through the points between (0, 0) and (width, height) of the canvas
+     *
+     * @param xs    the x values in ascending order
+     * @param ys    the y values
+     * @param count the number of points
+     */
+    public void draw(@NonNull Canvas c, float width, float height,
+                     @NonNull float[] xs, @NonNull float[] ys, int count, int color) {
+        if (count < 2 || width <= 0 || height <= 0) return;
+        scratch.get().draw(c, width, height, xs, ys, count, color, strokeWidth, area,
+                xs[0], xs[count - 1] - xs[0], null);
+    }
+
+    /**
+     * Draws the line like {@link #draw(Canvas, float, float, float[], float[], int, int)} across a
+     * given range of x values rather than its own, e.g. one shared by several sparklines
+     *
+     * @param yAxis receives the minimum and the range of the y-axis the line is fitted to
+     */
+    void draw(@NonNull Canvas c, float width, float height, @NonNull float[] xs, @NonNull float[] ys,
+              int count, int color, float minx, float rangeX, @NonNull float[] yAxis) {
+        if (count == 0 || width <= 0 || height <= 0) return;
+        scratch.get().draw(c, width, height, xs, ys, count, color, strokeWidth, area, minx, rangeX, yAxis);
+    }
+
+    /**
+     * Draws the plot between (0, 0) and (width, height) of the canvas. No points may be added to
+     * the plot while it's drawn.
+     */
+    public void draw(@NonNull Canvas c, float width, float height, @NonNull GraphView.Plot plot) {
+        final Series series = new Series(plot);
+        draw(c, width, height, series.xs, series.ys, series.count, series.color);
+    }
+
+    /**
+     * @return a bitmap from the pool with the line drawn on it, it should be given back with
+     * {@link #release(Bitmap)}
+     */
+    @NonNull
+    public Bitmap render(int width, int height, @NonNull float[] xs, @NonNull float[] ys, int count, int color) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        final Bitmap bitmap = pool.acquire(width, height, Bitmap.Config.ARGB_8888);
+        draw(new Canvas(bitmap), width, height, xs, ys, count, color);
+        return bitmap;
+    }
+
+    public void release(@NonNull Bitmap bitmap) {
+        pool.release(bitmap);
+    }
+
+    /**
+     * @param id      identifies the series, together with the version it's the key of the cache
+     * @param version a value that changes whenever the points do
+     * @return the cached bitmap of the series, rendered if it isn't cached. It belongs to the
+     * cache, it must neither be released nor drawn on.
+     */
+    @NonNull
+    public Bitmap cached(@NonNull Object id, long version, int width, int height,
+                         @NonNull float[] xs, @NonNull float[] ys, int count, int color) {
+        final Key key = new Key(id, version, width, height, color);
+        Bitmap bitmap = cache == null ? null : cache.get(key);
+        if (bitmap == null) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+            }
+            //not from the pool since it may still be displayed after it's evicted
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            draw(new Canvas(bitmap), width, height, xs, ys, count, color);
+            if (cache != null) cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @see #cached(Object, long, int, int, float[], float[], int, int)
+     */
+    @NonNull
+    public Bitmap cached(@NonNull GraphView.Plot plot, int width, int height) {
+        final Series series = new Series(plot);
+        return cached(plot, series.version, width, height, series.xs, series.ys, series.count, series.color);
+    }
+
+    /**
+     * Renders the plots in parallel on the render threads. The points are copied on this thread,
+     * points may be added to the plots once this returns.
+     *
+     * @param callback receives the cached bitmap of each plot on the main thread, see
+     *                 {@link #cached(GraphView.Plot, int, int)}
+     */
+    public void renderAll(@NonNull List<GraphView.Plot> plots, int width, int height, @NonNull Callback callback) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        final int count = plots.size();
+        if (count == 0) return;
+        final Series[] series = new Series[count];
+        for (int i = 0; i < count; i++) {
+            series[i] = new Series(plots.get(i));
+        }
+
+        final int threads = Math.max(1, Math.min(count, Runtime.getRuntime().availableProcessors() - 1));
+        final AtomicInteger next = new AtomicInteger();
+        for (int t = 0; t < threads; t++) {
+            RenderExecutor.get().execute(() -> {
+                //each thread takes the next series until there are none left
+                for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+                    final Series s = series[i];
+                    final Bitmap bitmap = cached(s.plot, s.version, width, height, s.xs, s.ys, s.count, s.color);
+                    final int index = i;
+                    main.post(() -> callback.onRendered(index, s.plot, bitmap));
+                }
+            });
+        }
+    }
+
+    /**
+     * Drops the cached bitmaps and the pooled ones
+     */
+    public void clear() {
+        if (cache != null) cache.evictAll();
+        pool.clear();
+    }
+
+    public interface Callback {
+        void onRendered(int index, @NonNull GraphView.Plot plot, @NonNull Bitmap bitmap);
+    }
+
+    /**
+     * A copy of the points of a plot so that they can be drawn on another thread
+     */
+    private static final class Series {
+        final GraphView.Plot plot;
+        final float[] xs;
+        final float[] ys;
+        final int count;
+        final int color;
+        final long version;
+
+        Series(@NonNull GraphView.Plot plot) {
+            this.plot = plot;
+            count = plot.size();
+            xs = new float[count];
+            ys = new float[count];
+            for (int i = 0; i < count; i++) {
+                xs[i] = plot.x(i);
+                ys[i] = plot.y(i);
+            }
+            color = plot.getColor();
+            version = plot.version();
+        }
+    }
+
+    private static final class Key {
+        final Object id;
+        final long version;
+        final int width;
+        final int height;
+        final int color;
+
+        Key(@NonNull Object id, long version, int width, int height, int color) {
+            this.id = id;
+            this.version = version;
+            this.width = width;
+            this.height = height;
+            this.color = color;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return version == key.version && width == key.width && height == key.height
+                    && color == key.color && id.equals(key.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, version, width, height, color);
+        }
+    }
+
+    private static final class Scratch {
+        final VertexRenderer renderer = new VertexRenderer();
+        final NiceScale scale = new NiceScale(2, 3);
+        final Paint line = new Paint(Paint.ANTI_ALIAS_FLAG);
+        final Paint area = new Paint(Paint.ANTI_ALIAS_FLAG);
+        float[] points = new float[0];
+        float[] screen = new float[0];
+
+        Scratch(float strokeWidth) {
+            line.setStyle(Paint.Style.STROKE);
+            line.setStrokeWidth(strokeWidth);
+            line.setStrokeCap(Paint.Cap.ROUND);
+            line.setStrokeJoin(Paint.Join.ROUND);
+            area.setStyle(Paint.Style.FILL);
+        }
+
+        void draw(@NonNull Canvas c, float width, float height, @NonNull float[] xs, @NonNull float[] ys,
+                  int count, int color, float strokeWidth, boolean fill,
+                  float minx, float rangeX, @Nullable float[] yAxis) {
+            float miny = Float.MAX_VALUE, maxy = -Float.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                miny = Math.min(miny, ys[i]);
+                maxy = Math.max(maxy, ys[i]);
+            }
+            scale.compute(miny, maxy);
+            if (yAxis != null) {
+                yAxis[0] = scale.min();
+                yAxis[1] = scale.range();
+            }
+
+            //the line is inset by half its width so that it isn't clipped at the edges
+            final float inset = strokeWidth / 2;
+            final float w = width - 2 * inset, h = height - 2 * inset;
+            final float sx = rangeX == 0 ? 0 : w / rangeX;
+            final float sy = scale.range() == 0 ? 0 : h / scale.range();
+
+            if (points.length < 2 * count) points = new float[2 * count];
+            for (int i = 0; i < count; i++) {
+                points[2 * i] = inset + (xs[i] - minx) * sx;
+                points[2 * i + 1] = inset + h - (ys[i] - scale.min()) * sy;
+            }
+
+            final int columns = (int) Math.ceil(width);
+            final int capacity = Decimator.capacity(count, columns);
+            if (screen.length < capacity) screen = new float[capacity];
+            final int decimated = Decimator.decimate(points, count, 0, width, columns, screen);
+
+            if (fill) renderer.drawArea(c, screen, decimated, inset, height, color, area);
+            line.setColor(color);
+            renderer.drawLine(c, screen, decimated, line);
+        }
+    }
+}
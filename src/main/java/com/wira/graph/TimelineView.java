@@ -0,0 +1,441 @@
+package com.wira.graph;
+
+import static android.graphics.Color.DKGRAY;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.util.LruCache;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.OverScroller;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.graphics.ColorUtils;
+
+import com.wira.graph.GraphView.Coordinate;
+import com.wira.graph.GraphView.Graph;
+import com.wira.graph.GraphView.Plot;
+import com.wira.graph.core.BitmapPool;
+import com.wira.graph.core.NiceScale;
+import com.wira.graph.core.RenderExecutor;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * <p>
+ * A horizontally scrolling line-graph for histories far wider than the screen. Instead of drawing
+ * the whole width, the x-axis is split into tiles of {@link #TILE_WIDTH} pixels which are each
+ * rendered into their own bitmap on the {@link RenderExecutor}. Only the visible tiles and one on
+ * either side of them are kept, the bitmaps of the tiles that scroll away are reused through a
+ * {@link BitmapPool}.
+ * </p>
+ *
+ * <p>
+ * The view does its own scrolling so it shouldn't be placed in a scroll container. Points added
+ * through {@link #append(String, float, float)} only re-render the tiles whose range the new
+ * segments cross, unless the point changes the y-axis in which case every tile is re-rendered.
+ * </p>
+ */
+public class TimelineView extends View {
+    /**
+     * The width of a tile in pixels, small enough to stay well within the texture limits
+     */
+    public static final int TILE_WIDTH = 512;
+
+    private final Paint linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint guidesPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint textPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final float textSize;
+
+    private final OverScroller scroller;
+    private final GestureDetector detector;
+    private final BitmapPool pool = new BitmapPool(8L * TILE_WIDTH * 1024 * 4);
+    private final NiceScale scale = new NiceScale(2, 3);
+    private final RectF bounds = new RectF();
+
+    private LruCache<Integer, Tile> tiles;
+    private Graph graph;
+    private float minx;
+    private float pixelsPerX;
+    private int contentWidth;
+    private float offset;
+    private int firstKept = Integer.MIN_VALUE;
+    private int lastKept = Integer.MIN_VALUE;
+
+    public TimelineView(Context context) {
+        this(context, null);
+    }
+
+    public TimelineView(Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public TimelineView(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.GraphView, defStyleAttr, 0);
+        final float strokeWidth = a.getDimension(R.styleable.GraphView_graphStrokeWidth, getResources().getDimension(R.dimen.default_stroke_width));
+        textSize = a.getDimension(R.styleable.GraphView_graphTextSize, getResources().getDimension(R.dimen.default_textSize));
+        final float guidesStroke = a.getDimension(R.styleable.GraphView_graphGuideStrokeWidth, getResources().getDimension(R.dimen.default_guideStrokeWidth));
+        a.recycle();
+
+        linePaint.setStrokeWidth(strokeWidth);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeCap(Paint.Cap.ROUND);
+        linePaint.setStrokeJoin(Paint.Join.ROUND);
+
+        guidesPaint.setColor(ColorUtils.setAlphaComponent(Color.BLACK, 30));
+        guidesPaint.setStyle(Paint.Style.STROKE);
+        guidesPaint.setStrokeWidth(guidesStroke);
+
+        textPaint.setColor(ColorUtils.setAlphaComponent(DKGRAY, 200));
+        textPaint.setTextSize(textSize);
+
+        pixelsPerX = getResources().getDisplayMetrics().density * 16;
+        scroller = new OverScroller(context);
+        detector = new GestureDetector(context, new GestureDetector.SimpleOnGestureListener() {
+            @Override
+            public boolean onDown(MotionEvent e) {
+                scroller.forceFinished(true);
+                return true;
+            }
+
+            @Override
+            public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                scrollTo(offset + distanceX);
+                return true;
+            }
+
+            @Override
+            public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                scroller.fling((int) offset, 0, (int) -velocityX, 0, 0, maxOffset(), 0, 0);
+                postInvalidateOnAnimation();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Sets the graph to be drawn and scrolls to its end
+     */
+    public void initialise(@NonNull Graph graph) {
+        this.graph = graph;
+        minx = Float.MAX_VALUE;
+        for (Plot plot : graph.plots()) {
+            minx = Math.min(minx, plot.getMinX());
+        }
+        scale();
+        invalidateTiles();
+        measureContent();
+        offset = maxOffset();
+        invalidate();
+    }
+
+    /**
+     * Sets the horizontal distance between two consecutive x values
+     */
+    @SuppressWarnings("unused")
+    public void setPixelsPerX(float pixelsPerX) {
+        if (pixelsPerX <= 0) {
+            throw new IllegalArgumentException("Invalid pixels per x: " + pixelsPerX);
+        }
+        if (this.pixelsPerX == pixelsPerX) return;
+
+        final float anchor = offset / this.pixelsPerX;
+        this.pixelsPerX = pixelsPerX;
+        invalidateTiles();
+        measureContent();
+        scrollTo(anchor * pixelsPerX);
+    }
+
+    /**
+     * Adds a point to the plot with the given label. If the view was scrolled to the end it keeps
+     * following the end of the graph.
+     */
+    public void append(@NonNull String label, float x, float y) {
+        if (graph == null) return;
+        final Plot plot = graph.plot(label);
+        if (plot == null) return;
+
+        final boolean atEnd = offset >= maxOffset();
+        final int version = plot.version();
+        plot.add(x, y);
+        if (plot.version() == version) return;
+
+        final boolean rescaled = scale();
+        if (x < minx || rescaled) {
+            minx = Math.min(minx, x);
+            invalidateTiles();
+        } else {
+            //the point changes the segments to its neighbours and nothing else, which are found
+            //without copying the plot's points
+            final Coordinate point = new Coordinate(x, y);
+            final Coordinate previous = plot.coordinates().lower(point);
+            final Coordinate next = plot.coordinates().higher(point);
+            invalidateTiles(tileOf(previous != null ? previous.x : x), tileOf(next != null ? next.x : x));
+        }
+
+        measureContent();
+        if (atEnd) offset = maxOffset();
+        invalidate();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        bounds.set(getPaddingLeft() + textSize * 3, getPaddingTop() + textSize,
+                w - getPaddingRight(), h - getPaddingBottom() - textSize);
+
+        if (tiles != null) tiles.evictAll();
+        //the visible tiles and one on either side of them
+        final int capacity = (int) Math.ceil(bounds.width() / TILE_WIDTH) + 3;
+        tiles = new LruCache<Integer, Tile>(capacity) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, Tile oldValue, Tile newValue) {
+                oldValue.release();
+            }
+        };
+        firstKept = lastKept = Integer.MIN_VALUE;
+        measureContent();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (tiles != null) tiles.evictAll();
+        pool.clear();
+    }
+
+    @Override
+    public boolean onTouchEvent(@NonNull MotionEvent event) {
+        final boolean handled = detector.onTouchEvent(event);
+        if (event.getActionMasked() == MotionEvent.ACTION_UP) performClick();
+        return handled || super.onTouchEvent(event);
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    @Override
+    public void computeScroll() {
+        if (scroller.computeScrollOffset()) {
+            offset = scroller.getCurrX();
+            postInvalidateOnAnimation();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (graph == null || tiles == null || bounds.width() <= 0) return;
+
+        guides(canvas);
+
+        final int first = (int) Math.floor(offset / TILE_WIDTH);
+        final int last = (int) Math.floor((offset + bounds.width()) / TILE_WIDTH);
+        trim(first - 1, last + 1);
+
+        final int save = canvas.save();
+        canvas.clipRect(bounds.left, 0, bounds.right, getHeight());
+        for (int i = first - 1; i <= last + 1; i++) {
+            if (i < 0 || i * TILE_WIDTH >= contentWidth) continue;
+
+            Tile tile = tiles.get(i);
+            if (tile == null) {
+                tile = new Tile(i);
+                tiles.put(i, tile);
+            }
+            if (tile.stale) render(tile);
+            if (i >= first && i <= last && tile.bitmap != null) {
+                canvas.drawBitmap(tile.bitmap, bounds.left + i * TILE_WIDTH - offset, 0, null);
+            }
+        }
+        canvas.restoreToCount(save);
+    }
+
+    private void guides(@NonNull Canvas c) {
+        final float interval = bounds.height() / scale.intervals();
+        for (int i = 0; i <= scale.intervals(); i++) {
+            final float y = bounds.bottom - i * interval;
+            c.drawLine(bounds.left, y, bounds.right, y, guidesPaint);
+            final String label = GraphView.label(scale.tick(i));
+            c.drawText(label, bounds.left - textPaint.measureText(label) - textSize * .5f, y + textSize * .5f, textPaint);
+        }
+    }
+
+    /**
+     * Drops the tiles outside the range, this is only done when the range changes
+     */
+    private void trim(int first, int last) {
+        if (first == firstKept && last == lastKept) return;
+        firstKept = first;
+        lastKept = last;
+
+        for (Map.Entry<Integer, Tile> entry : tiles.snapshot().entrySet()) {
+            final int i = entry.getKey();
+            if (i < first || i > last) tiles.remove(i);
+        }
+    }
+
+    /**
+     * Copies the points that fall within the tile and draws them into a bitmap on the
+     * {@link RenderExecutor}. The tile keeps showing its previous bitmap until the new one is
+     * ready.
+     */
+    private void render(@NonNull Tile tile) {
+        tile.stale = false;
+        final int generation = ++tile.generation;
+
+        final Collection<Plot> plots = graph.plots();
+        final float[][] points = new float[plots.size()][];
+        final int[] colors = new int[plots.size()];
+        final float tileStart = tile.index * TILE_WIDTH;
+        final float startX = minx + tileStart / pixelsPerX;
+        final float endX = minx + (tileStart + TILE_WIDTH) / pixelsPerX;
+        final float height = getHeight();
+        final float bottom = bounds.bottom, plotHeight = bounds.height();
+        final float scaleMin = scale.min(), scaleRange = scale.range();
+
+        int p = 0;
+        for (Plot plot : plots) {
+            colors[p] = plot.getColor();
+            //one point beyond each edge so that the segments crossing the edges are drawn, only
+            //the points of the tile are visited rather than all of the plot's copied
+            final NavigableSet<Coordinate> coordinates = plot.coordinates();
+            final Coordinate start = new Coordinate(startX, 0), end = new Coordinate(endX, 0);
+            Coordinate from = coordinates.lower(start);
+            if (from == null) from = coordinates.ceiling(start);
+            Coordinate to = coordinates.higher(end);
+            if (to == null) to = coordinates.floor(end);
+            if (from == null || to == null || from.x > to.x) {
+                points[p++] = new float[0];
+                continue;
+            }
+
+            final NavigableSet<Coordinate> within = coordinates.subSet(from, true, to, true);
+            final float[] tilePoints = new float[2 * within.size()];
+            int j = 0;
+            for (Coordinate c : within) {
+                tilePoints[j++] = (c.x - minx) * pixelsPerX - tileStart;
+                tilePoints[j++] = bottom - (c.y - scaleMin) / scaleRange * plotHeight;
+            }
+            points[p++] = tilePoints;
+        }
+
+        final Paint paint = new Paint(linePaint);
+        RenderExecutor.get().execute(() -> {
+            final Bitmap bitmap = pool.acquire(TILE_WIDTH, (int) height, Bitmap.Config.ARGB_8888);
+            final Canvas canvas = new Canvas(bitmap);
+            final Path path = new Path();
+            for (int i = 0; i < points.length; i++) {
+                final float[] tilePoints = points[i];
+                if (tilePoints.length == 0) continue;
+
+                path.rewind();
+                path.moveTo(tilePoints[0], tilePoints[1]);
+                for (int j = 2; j < tilePoints.length; j += 2) {
+                    path.lineTo(tilePoints[j], tilePoints[j + 1]);
+                }
+                paint.setColor(colors[i]);
+                canvas.drawPath(path, paint);
+            }
+            post(() -> tile.install(bitmap, generation));
+        });
+    }
+
+    /**
+     * Fits the y-axis to the graph
+     *
+     * @return true if the axis changed
+     */
+    private boolean scale() {
+        float miny = Float.MAX_VALUE, maxy = -Float.MAX_VALUE;
+        for (Plot plot : graph.plots()) {
+            miny = Math.min(miny, plot.getMinY());
+            maxy = Math.max(maxy, plot.getMaxY());
+        }
+        return scale.compute(miny, maxy);
+    }
+
+    private void measureContent() {
+        if (graph == null) return;
+        float maxx = minx;
+        for (Plot plot : graph.plots()) {
+            maxx = Math.max(maxx, plot.getMaxX());
+        }
+        contentWidth = (int) Math.ceil((maxx - minx) * pixelsPerX) + 1;
+        offset = Math.max(0, Math.min(offset, maxOffset()));
+    }
+
+    private int maxOffset() {
+        return Math.max(0, contentWidth - (int) bounds.width());
+    }
+
+    private void scrollTo(float offset) {
+        final float clamped = Math.max(0, Math.min(offset, maxOffset()));
+        if (clamped == this.offset) return;
+        this.offset = clamped;
+        invalidate();
+    }
+
+    private int tileOf(float x) {
+        return (int) Math.floor((x - minx) * pixelsPerX / TILE_WIDTH);
+    }
+
+    private void invalidateTiles() {
+        invalidateTiles(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    private void invalidateTiles(int first, int last) {
+        if (tiles == null) return;
+        for (Tile tile : tiles.snapshot().values()) {
+            if (tile.index >= first && tile.index <= last) tile.stale = true;
+        }
+    }
+
+    /**
+     * A tile is only touched on the UI thread, the bitmap it's rendered into is handed back to it
+     * through {@link #install(Bitmap, int)}
+     */
+    private final class Tile {
+        final int index;
+        Bitmap bitmap;
+        int generation;
+        boolean stale = true;
+        boolean released;
+
+        Tile(int index) {
+            this.index = index;
+        }
+
+        void install(@NonNull Bitmap bitmap, int generation) {
+            if (released || generation != this.generation) {
+                pool.release(bitmap);
+                return;
+            }
+            if (this.bitmap != null) pool.release(this.bitmap);
+            this.bitmap = bitmap;
+            invalidate();
+        }
+
+        void release() {
+            released = true;
+            if (bitmap != null) pool.release(bitmap);
+            bitmap = null;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.wira.graph.core;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Keeps released bitmaps around so that they can be drawn on again instead of being allocated
+ * afresh. The pool holds at most {@code maxBytes} worth of bitmaps, the oldest ones are recycled
+ * once it's full.
+ * <p>
+ * Bitmaps can be acquired and released from any thread.
+ * </p>
+ */
+public class BitmapPool {
+    private final long maxBytes;
+    private final ArrayDeque<Bitmap> bitmaps = new ArrayDeque<>();
+    private long bytes;
+
+    public BitmapPool(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Invalid pool size: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a cleared bitmap of the given size and config, reused from the pool if one is
+     * available
+     */
+    @NonNull
+    public Bitmap acquire(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            final Iterator<Bitmap> iterator = bitmaps.iterator();
+            while (iterator.hasNext()) {
+                final Bitmap b = iterator.next();
+                if (b.getWidth() == width && b.getHeight() == height && b.getConfig() == config) {
+                    iterator.remove();
+                    bytes -= b.getAllocationByteCount();
+                    bitmap = b;
+                    break;
+                }
+            }
+        }
+
+        if (bitmap == null) return Bitmap.createBitmap(width, height, config);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Returns the bitmap to the pool. The bitmap mustn't be used by the caller afterwards.
+     */
+    public void release(@NonNull Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable()) return;
+
+        final int size = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            if (size > maxBytes) {
+                bitmap.recycle();
+                return;
+            }
+            bitmaps.addLast(bitmap);
+            bytes += size;
+            while (bytes > maxBytes) {
+                final Bitmap oldest = bitmaps.removeFirst();
+                bytes -= oldest.getAllocationByteCount();
+                oldest.recycle();
+            }
+        }
+    }
+
+    /**
+     * Recycles all the bitmaps in the pool
+     */
+    public synchronized void clear() {
+        for (Bitmap bitmap : bitmaps) {
+            bitmap.recycle();
+        }
+        bitmaps.clear();
+        bytes = 0;
+    }
+}
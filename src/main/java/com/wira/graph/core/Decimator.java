@@ -0,0 +1,76 @@
+package com.wira.graph.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Reduces a line with more points than there are pixels to draw it on. The x-axis is split into
+ * buckets, usually one per pixel column, and only the first, the lowest, the highest and the last
+ * point of each bucket are kept (M4 aggregation). The result is drawn identically to the original
+ * line at that resolution.
+ */
+public final class Decimator {
+
+    private Decimator() {
+    }
+
+    /**
+     * @return the number of floats the output of {@link #decimate} needs for the given buckets
+     */
+    public static int capacity(int count, int buckets) {
+        return 2 * Math.min(count, 4 * buckets);
+    }
+
+    /**
+     * Decimates the points, which are interleaved x and y values ordered by x.
+     *
+     * @param points  the points to decimate
+     * @param count   the number of points i.e. half the number of floats used in points
+     * @param start   the x value at the start of the first bucket
+     * @param end     the x value at the end of the last bucket
+     * @param buckets the number of buckets, usually the width in pixels
+     * @param out     where the decimated points are written, interleaved like the input. It must
+     *                hold at least {@link #capacity(int, int)} floats
+     * @return the number of points written to out
+     */
+    public static int decimate(@NonNull float[] points, int count, float start, float end, int buckets, @NonNull float[] out) {
+        if (count <= 4 * buckets || buckets <= 0 || end <= start) {
+            System.arraycopy(points, 0, out, 0, 2 * count);
+            return count;
+        }
+
+        final float scale = buckets / (end - start);
+        int n = 0;
+        int i = 0;
+        while (i < count) {
+            final int bucket = bucket(points[2 * i], start, scale, buckets);
+            int min = i, max = i, last = i;
+            int j = i + 1;
+            while (j < count && bucket(points[2 * j], start, scale, buckets) == bucket) {
+                final float y = points[2 * j + 1];
+                if (y < points[2 * min + 1]) min = j;
+                if (y > points[2 * max + 1]) max = j;
+                last = j++;
+            }
+
+            //emit the first, the extremes and the last point of the bucket in the order they occur
+            n = emit(points, out, n, i);
+            final int a = Math.min(min, max), b = Math.max(min, max);
+            if (a != i) n = emit(points, out, n, a);
+            if (b != a && b != i) n = emit(points, out, n, b);
+            if (last != b && last != i) n = emit(points, out, n, last);
+            i = j;
+        }
+        return n;
+    }
+
+    private static int bucket(float x, float start, float scale, int buckets) {
+        final int bucket = (int) ((x - start) * scale);
+        return bucket < 0 ? 0 : Math.min(bucket, buckets - 1);
+    }
+
+    private static int emit(float[] points, float[] out, int n, int i) {
+        out[2 * n] = points[2 * i];
+        out[2 * n + 1] = points[2 * i + 1];
+        return n + 1;
+    }
+}
@@ -0,0 +1,178 @@
+package com.wira.graph.core;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates how many lines cross each pixel so that hundreds or thousands of overlapping series
+ * can be drawn as a single density image rather than as individual lines.
+ * <p>
+ * Lines are rasterized in the manner of Wu's algorithm, each step along the major axis spreads a
+ * coverage of one across the two pixels nearest to the line. A buffer is not thread safe, series
+ * are rasterized in parallel into separate buffers which are then {@link #add(DensityBuffer)}ed
+ * together.
+ * </p>
+ */
+public class DensityBuffer {
+    private final int width;
+    private final int height;
+    private final float[] values;
+
+    public DensityBuffer(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        values = new float[width * height];
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0);
+    }
+
+    /**
+     * @return the coverage accumulated at the pixel
+     */
+    public float get(int x, int y) {
+        return values[y * width + x];
+    }
+
+    /**
+     * Rasterizes the line through the points
+     *
+     * @param points interleaved x and y pixel coordinates
+     * @param count  the number of points
+     */
+    public void polyline(@NonNull float[] points, int count) {
+        if (count <= 0) return;
+        //each segment excludes its end so that the joints aren't counted twice
+        for (int i = 1; i < count; i++) {
+            line(points[2 * i - 2], points[2 * i - 1], points[2 * i], points[2 * i + 1]);
+        }
+        final int x = Math.round(points[2 * count - 2]);
+        final float y = points[2 * count - 1];
+        final int iy = (int) Math.floor(y);
+        plot(x, iy, 1 - (y - iy));
+        plot(x, iy + 1, y - iy);
+    }
+
+    /**
+     * Rasterizes the line from (x0, y0) up to but not including (x1, y1)
+     */
+    public void line(float x0, float y0, float x1, float y1) {
+        final boolean steep = Math.abs(y1 - y0) > Math.abs(x1 - x0);
+        if (steep) {
+            float t = x0;
+            x0 = y0;
+            y0 = t;
+            t = x1;
+            x1 = y1;
+            y1 = t;
+        }
+        final boolean reversed = x0 > x1;
+        final float dx = x1 - x0;
+        final float gradient = dx == 0 ? 0 : (y1 - y0) / dx;
+
+        final int start = Math.round(x0), end = Math.round(x1);
+        final int step = reversed ? -1 : 1;
+        float y = y0 + gradient * (start - x0);
+        for (int x = start; x != end; x += step) {
+            final int iy = (int) Math.floor(y);
+            final float fraction = y - iy;
+            if (steep) {
+                plot(iy, x, 1 - fraction);
+                plot(iy + 1, x, fraction);
+            } else {
+                plot(x, iy, 1 - fraction);
+                plot(x, iy + 1, fraction);
+            }
+            y += gradient * step;
+        }
+    }
+
+    private void plot(int x, int y, float coverage) {
+        if (x < 0 || y < 0 || x >= width || y >= height || coverage <= 0) return;
+        values[y * width + x] += coverage;
+    }
+
+    /**
+     * Adds the coverage of another buffer of the same size to this one
+     */
+    public void add(@NonNull DensityBuffer other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Mismatched sizes: " + other.width + "x" + other.height);
+        }
+        final float[] o = other.values;
+        for (int i = 0; i < values.length; i++) {
+            values[i] += o[i];
+        }
+    }
+
+    public float max() {
+        float max = 0;
+        for (float v : values) {
+            if (v > max) max = v;
+        }
+        return max;
+    }
+
+    /**
+     * Maps the coverage of each pixel to a color of the ramp. The coverage is scaled
+     * logarithmically so that both the sparse and the dense regions remain distinguishable,
+     * pixels with no coverage are transparent.
+     *
+     * @param ramp   the colors from the least to the most dense, see {@link #ramp(int...)}
+     * @param pixels receives the colors, it should hold {@code width * height} pixels
+     */
+    public void toneMap(@NonNull int[] ramp, @NonNull int[] pixels) {
+        final float max = max();
+        if (max <= 0) {
+            Arrays.fill(pixels, 0, values.length, 0);
+            return;
+        }
+
+        final double scale = (ramp.length - 1) / Math.log1p(max);
+        for (int i = 0; i < values.length; i++) {
+            final float v = values[i];
+            pixels[i] = v <= 0 ? 0 : ramp[Math.min(ramp.length - 1, (int) (Math.log1p(v) * scale))];
+        }
+    }
+
+    /**
+     * Interpolates 256 colors evenly across the stops
+     *
+     * @param stops at least two ARGB colors
+     */
+    @NonNull
+    public static int[] ramp(@NonNull int... stops) {
+        if (stops.length < 2) {
+            throw new IllegalArgumentException("A ramp requires at least two colors");
+        }
+        final int[] ramp = new int[256];
+        for (int i = 0; i < ramp.length; i++) {
+            final float position = i / 255f * (stops.length - 1);
+            final int from = Math.min((int) position, stops.length - 2);
+            ramp[i] = blend(stops[from], stops[from + 1], position - from);
+        }
+        return ramp;
+    }
+
+    private static int blend(int from, int to, float ratio) {
+        int color = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            final int a = (from >>> shift) & 0xFF, b = (to >>> shift) & 0xFF;
+            color |= Math.round(a + (b - a) * ratio) << shift;
+        }
+        return color;
+    }
+}
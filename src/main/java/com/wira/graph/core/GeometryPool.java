@@ -0,0 +1,127 @@
+package com.wira.graph.core;
+
+import android.graphics.Path;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps the paths and the float arrays of geometry that is no longer drawn, e.g. of a graph
+ * unbound from a recycled view, so that the next geometry reuses them instead of allocating its
+ * own. Arrays are pooled by their length rounded up to a power of two, so an array acquired for n
+ * values may be longer than n.
+ * <p>
+ * There's one pool shared by the views of this library, see {@link #get()}. Paths and arrays can
+ * be acquired and released from any thread, but whatever has been released mustn't be used
+ * afterwards.
+ * </p>
+ */
+public class GeometryPool {
+    private static final int MAX_PATHS = 64;
+    private static final int MAX_ARRAYS_PER_SIZE = 8;
+    //arrays longer than 2^20 values are left to the garbage collector
+    private static final int MAX_BUCKET = 20;
+    private static final float[] EMPTY = new float[0];
+
+    private static volatile GeometryPool pool;
+
+    private final int maxPaths;
+    private final int maxArraysPerSize;
+    private final ArrayDeque<Path> paths = new ArrayDeque<>();
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<float[]>[] arrays = new ArrayDeque[MAX_BUCKET + 1];
+
+    public GeometryPool(int maxPaths, int maxArraysPerSize) {
+        if (maxPaths < 0 || maxArraysPerSize < 0) {
+            throw new IllegalArgumentException("Invalid pool size: " + maxPaths + ", " + maxArraysPerSize);
+        }
+        this.maxPaths = maxPaths;
+        this.maxArraysPerSize = maxArraysPerSize;
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = new ArrayDeque<>();
+        }
+    }
+
+    @NonNull
+    public static GeometryPool get() {
+        GeometryPool p = pool;
+        if (p == null) {
+            synchronized (GeometryPool.class) {
+                p = pool;
+                if (p == null) {
+                    p = new GeometryPool(MAX_PATHS, MAX_ARRAYS_PER_SIZE);
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * @return an empty path, reused from the pool if one is available
+     */
+    @NonNull
+    public Path path() {
+        synchronized (this) {
+            final Path path = paths.poll();
+            if (path != null) return path;
+        }
+        return new Path();
+    }
+
+    public void release(@NonNull Path path) {
+        path.rewind();
+        synchronized (this) {
+            if (paths.size() < maxPaths) paths.push(path);
+        }
+    }
+
+    /**
+     * @return an array of at least the given length, reused from the pool if one is available.
+     * Its contents are unspecified.
+     */
+    @NonNull
+    public float[] floats(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid length: " + length);
+        }
+        if (length == 0) return EMPTY;
+
+        final int bucket = bucket(length);
+        if (bucket > MAX_BUCKET) return new float[length];
+        synchronized (this) {
+            final float[] array = arrays[bucket].poll();
+            if (array != null) return array;
+        }
+        return new float[1 << bucket];
+    }
+
+    /**
+     * Returns an array acquired from {@link #floats(int)} to the pool, any other array is ignored
+     */
+    public void release(@NonNull float[] array) {
+        final int length = array.length;
+        if (length == 0 || Integer.bitCount(length) != 1) return;
+
+        final int bucket = bucket(length);
+        if (bucket > MAX_BUCKET) return;
+        synchronized (this) {
+            if (arrays[bucket].size() < maxArraysPerSize) arrays[bucket].push(array);
+        }
+    }
+
+    public synchronized void clear() {
+        paths.clear();
+        for (ArrayDeque<float[]> bucket : arrays) {
+            bucket.clear();
+        }
+    }
+
+    /**
+     * @return the power of two of the smallest pooled length that holds the given length
+     */
+    private static int bucket(int length) {
+        return 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+}
@@ -0,0 +1,247 @@
+package com.wira.graph.core;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Draws numeric text by copying pre-rendered glyphs out of a bitmap rather than shaping the text
+ * every time it is drawn, which matters for values that change on every frame e.g. while
+ * scrubbing through a graph.
+ * <p>
+ * The glyphs of the digits, the separators and the currency symbol of the locale and the k, m, b
+ * and t suffixes are rendered once per text size and typeface into an alpha only bitmap, drawing
+ * a cell of the bitmap with a paint tints it with the paint's color. Text containing any other
+ * character, or drawn with a paint that has a shader, is drawn with
+ * {@link Canvas#drawText(String, float, float, Paint)} instead. Only a few atlases are kept, the
+ * least recently used is recycled first. An atlas is not thread safe, it is meant to be used from
+ * the thread that draws the view.
+ * </p>
+ */
+public class GlyphAtlas {
+    private static final String NUMERIC = "0123456789.,-+%:/ kmbtKMBT";
+    private static final int MAX_ATLASES = 4;
+    private static final int COLUMNS = 16;
+    //keeps glyphs that slightly overhang their advance from being cut off
+    private static final int PADDING = 2;
+
+    private final Locale locale;
+    private final char[] chars;
+    //the cell of each ascii character, -1 if it isn't in the atlas
+    private final int[] ascii = new int[128];
+    private final Map<Key, Atlas> atlases = new LinkedHashMap<Key, Atlas>(MAX_ATLASES, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Atlas> eldest) {
+            if (size() <= MAX_ATLASES) return false;
+            eldest.getValue().bitmap.recycle();
+            return true;
+        }
+    };
+    private final Key lookup = new Key();
+    private final Rect src = new Rect();
+    private final RectF dst = new RectF();
+
+    public GlyphAtlas() {
+        this(Locale.getDefault());
+    }
+
+    public GlyphAtlas(@NonNull Locale locale) {
+        this.locale = locale;
+
+        final StringBuilder charset = new StringBuilder(NUMERIC);
+        final DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        charset.append(symbols.getDecimalSeparator())
+                .append(symbols.getGroupingSeparator())
+                .append(symbols.getMinusSign());
+        try {
+            charset.append(Currency.getInstance(locale).getSymbol(locale));
+        } catch (IllegalArgumentException ignored) {
+            //the locale has no country and therefore no currency
+        }
+
+        Arrays.fill(ascii, -1);
+        final StringBuilder unique = new StringBuilder();
+        for (int i = 0; i < charset.length(); i++) {
+            final char c = charset.charAt(i);
+            if (unique.indexOf(String.valueOf(c)) >= 0) continue;
+            if (c < ascii.length) ascii[c] = unique.length();
+            unique.append(c);
+        }
+        chars = unique.toString().toCharArray();
+    }
+
+    @NonNull
+    public Locale locale() {
+        return locale;
+    }
+
+    /**
+     * @return true if every character of the text is in the atlas
+     */
+    public boolean canDraw(@NonNull String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (cell(text.charAt(i)) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Draws the text in the same place {@link Canvas#drawText(String, float, float, Paint)} would,
+     * respecting the paint's text size, typeface, alignment and color
+     */
+    public void drawText(@NonNull Canvas c, @NonNull String text, float x, float y, @NonNull Paint paint) {
+        if (paint.getShader() != null || !canDraw(text)) {
+            c.drawText(text, x, y, paint);
+            return;
+        }
+
+        final Atlas atlas = atlas(paint);
+        final Paint.Align align = paint.getTextAlign();
+        if (align == Paint.Align.CENTER) {
+            x -= measure(atlas, text) / 2;
+        } else if (align == Paint.Align.RIGHT) {
+            x -= measure(atlas, text);
+        }
+
+        //the cells are snapped to whole pixels so that they're copied without filtering
+        final int top = Math.round(y + atlas.top) - PADDING;
+        for (int i = 0; i < text.length(); i++) {
+            final int cell = cell(text.charAt(i));
+            final int left = Math.round(x) - PADDING;
+            atlas.cell(cell, src);
+            dst.set(left, top, left + atlas.cellWidth, top + atlas.cellHeight);
+            c.drawBitmap(atlas.bitmap, src, dst, paint);
+            x += atlas.advances[cell];
+        }
+    }
+
+    /**
+     * @return the width of the text as drawn by {@link #drawText(Canvas, String, float, float, Paint)}
+     */
+    public float measureText(@NonNull String text, @NonNull Paint paint) {
+        if (paint.getShader() != null || !canDraw(text)) return paint.measureText(text);
+        return measure(atlas(paint), text);
+    }
+
+    /**
+     * Recycles the bitmaps of the atlases, they're rendered again when next needed
+     */
+    public void clear() {
+        final Iterator<Atlas> iterator = atlases.values().iterator();
+        while (iterator.hasNext()) {
+            iterator.next().bitmap.recycle();
+            iterator.remove();
+        }
+    }
+
+    private float measure(@NonNull Atlas atlas, @NonNull String text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += atlas.advances[cell(text.charAt(i))];
+        }
+        return width;
+    }
+
+    private int cell(char c) {
+        if (c < ascii.length) return ascii[c];
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] == c) return i;
+        }
+        return -1;
+    }
+
+    @NonNull
+    private Atlas atlas(@NonNull Paint paint) {
+        lookup.set(paint.getTextSize(), paint.getTypeface());
+        Atlas atlas = atlases.get(lookup);
+        if (atlas == null || atlas.bitmap.isRecycled()) {
+            atlas = new Atlas(chars, paint);
+            atlases.put(new Key().set(lookup.textSize, lookup.typeface), atlas);
+        }
+        return atlas;
+    }
+
+    private static class Atlas {
+        final Bitmap bitmap;
+        final float[] advances;
+        final float top;
+        final int cellWidth;
+        final int cellHeight;
+
+        Atlas(@NonNull char[] chars, @NonNull Paint source) {
+            final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setTextSize(source.getTextSize());
+            paint.setTypeface(source.getTypeface());
+            paint.setColor(Color.BLACK);
+
+            advances = new float[chars.length];
+            float max = 0;
+            for (int i = 0; i < chars.length; i++) {
+                advances[i] = paint.measureText(chars, i, 1);
+                max = Math.max(max, advances[i]);
+            }
+            final Paint.FontMetrics metrics = paint.getFontMetrics();
+            top = metrics.top;
+            cellWidth = (int) Math.ceil(max) + 2 * PADDING;
+            cellHeight = (int) Math.ceil(metrics.bottom - metrics.top) + 2 * PADDING;
+
+            final int rows = (chars.length + COLUMNS - 1) / COLUMNS;
+            bitmap = Bitmap.createBitmap(COLUMNS * cellWidth, rows * cellHeight, Bitmap.Config.ALPHA_8);
+            final Canvas canvas = new Canvas(bitmap);
+            for (int i = 0; i < chars.length; i++) {
+                final int column = i % COLUMNS, row = i / COLUMNS;
+                canvas.drawText(chars, i, 1,
+                        column * cellWidth + PADDING,
+                        row * cellHeight + PADDING - top,
+                        paint);
+            }
+        }
+
+        void cell(int index, @NonNull Rect out) {
+            final int left = (index % COLUMNS) * cellWidth, top = (index / COLUMNS) * cellHeight;
+            out.set(left, top, left + cellWidth, top + cellHeight);
+        }
+    }
+
+    private static class Key {
+        float textSize;
+        @Nullable
+        Typeface typeface;
+
+        Key set(float textSize, @Nullable Typeface typeface) {
+            this.textSize = textSize;
+            this.typeface = typeface;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return Float.compare(key.textSize, textSize) == 0 && Objects.equals(typeface, key.typeface);
+        }
+
+        @Override
+        public int hashCode() {
+            //computed by hand as it's looked up on every draw
+            return 31 * Float.floatToIntBits(textSize) + (typeface == null ? 0 : typeface.hashCode());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.wira.graph.core;
+
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Interpolates a set of lines from one state to another. Each line is resampled at the same
+ * number of evenly spaced x values in both states, so that a frame of the transition is just a
+ * blend of the two sets of y values, whatever the number of points the lines originally had.
+ * <p>
+ * The points given to {@link #from(int, int, float, float[], int, float)} and
+ * {@link #to(int, int, float, float[], int, float)} are interleaved x values between 0 and 1 and
+ * y values in the units of the data, the frames are produced in drawing coordinates. The buffers
+ * are only allocated when a transition needs more lines or points than any before it, producing
+ * the frames never allocates.
+ * </p>
+ */
+public class LineTransition {
+    private int points;
+    private int size;
+    private float[][] from = new float[0][];
+    private float[][] to = new float[0][];
+    private boolean[] hasTo = new boolean[0];
+    private int[] colors = new int[0];
+    private float[] fromWidths = new float[0];
+    private float[] toWidths = new float[0];
+
+    /**
+     * Starts a new transition, discarding the lines of the previous one
+     *
+     * @param points the number of points each line is resampled to
+     */
+    public void begin(int points) {
+        if (points < 2) {
+            throw new IllegalArgumentException("A line requires at least two points: " + points);
+        }
+        this.points = points;
+        size = 0;
+    }
+
+    /**
+     * Adds a line to the transition
+     *
+     * @return the slot of the line
+     */
+    public int add() {
+        if (size == from.length) {
+            final int capacity = Math.max(4, size * 2);
+            final float[][] f = new float[capacity][], t = new float[capacity][];
+            System.arraycopy(from, 0, f, 0, size);
+            System.arraycopy(to, 0, t, 0, size);
+            from = f;
+            to = t;
+            hasTo = Arrays.copyOf(hasTo, capacity);
+            colors = Arrays.copyOf(colors, capacity);
+            fromWidths = Arrays.copyOf(fromWidths, capacity);
+            toWidths = Arrays.copyOf(toWidths, capacity);
+        }
+        if (from[size] == null || from[size].length < points) {
+            from[size] = new float[points];
+            to[size] = new float[points];
+        }
+        hasTo[size] = false;
+        return size++;
+    }
+
+    /**
+     * Sets where the line starts from. A line without any points starts flat at the baseline.
+     */
+    public void from(int slot, int color, float width, @Nullable float[] xy, int count, float baseline) {
+        colors[slot] = color;
+        fromWidths[slot] = width;
+        toWidths[slot] = width;
+        resample(xy, count, from[slot], points, baseline);
+    }
+
+    /**
+     * Sets where the line ends up. A line without any points ends up flat at the baseline.
+     */
+    public void to(int slot, int color, float width, @Nullable float[] xy, int count, float baseline) {
+        colors[slot] = color;
+        toWidths[slot] = width;
+        hasTo[slot] = true;
+        resample(xy, count, to[slot], points, baseline);
+    }
+
+    /**
+     * @return false if the line's end hasn't been set i.e. the line is going away
+     */
+    public boolean hasTo(int slot) {
+        return hasTo[slot];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of points in a frame of each line
+     */
+    public int points() {
+        return points;
+    }
+
+    public int color(int slot) {
+        return colors[slot];
+    }
+
+    public float width(int slot, float t) {
+        return fromWidths[slot] + (toWidths[slot] - fromWidths[slot]) * t;
+    }
+
+    /**
+     * Computes the line at some fraction of the transition in drawing coordinates, the y-axis
+     * pointing upwards from 0 to {@code -height}.
+     *
+     * @param t     the fraction of the transition between 0 and 1
+     * @param min   the value at the bottom of the drawing
+     * @param range the range of values across the height
+     * @param out   receives the interleaved points, it should hold {@code 2 * points()} values
+     * @return the number of points
+     */
+    public int frame(int slot, float t, float width, float height, float min, float range, float[] out) {
+        final float[] f = from[slot], e = to[slot];
+        final float sx = width / (points - 1), sy = range == 0 ? 0 : height / range;
+        for (int i = 0; i < points; i++) {
+            out[2 * i] = i * sx;
+            out[2 * i + 1] = -(f[i] + (e[i] - f[i]) * t - min) * sy;
+        }
+        return points;
+    }
+
+    /**
+     * Samples the line at n evenly spaced x values between 0 and 1, interpolating linearly between
+     * its points. The line's first and last values extend to the ends.
+     *
+     * @param xy    interleaved points ordered by x
+     * @param count the number of points
+     * @param out   receives the n y values
+     */
+    public static void resample(@Nullable float[] xy, int count, float[] out, int n, float baseline) {
+        if (xy == null || count == 0) {
+            for (int i = 0; i < n; i++) out[i] = baseline;
+            return;
+        }
+
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            final float x = (float) i / (n - 1);
+            while (j < count - 1 && xy[2 * j + 2] < x) j++;
+
+            if (j == count - 1 || x <= xy[2 * j]) {
+                out[i] = xy[2 * j + 1];
+                continue;
+            }
+            final float x0 = xy[2 * j], x1 = xy[2 * j + 2];
+            final float ratio = x1 == x0 ? 1 : (x - x0) / (x1 - x0);
+            out[i] = xy[2 * j + 1] + (xy[2 * j + 3] - xy[2 * j + 1]) * ratio;
+        }
+    }
+}
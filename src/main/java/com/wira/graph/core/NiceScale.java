@@ -0,0 +1,175 @@
+package com.wira.graph.core;
+
+/**
+ * Computes a "nice" axis for a range of values in the manner of Heckbert's nice numbers, i.e. the
+ * axis starts and ends on multiples of a step that's one of {@link #STEPS} times a power of ten.
+ * Of all the candidate axes that have between {@code minIntervals} and {@code maxIntervals}
+ * intervals the one that covers the range most tightly wins, ties going to the simpler step.
+ * <p>
+ * The result of the last computation is cached, so computing the same range again is free. None
+ * of the methods allocate.
+ * </p>
+ */
+public class NiceScale {
+    /**
+     * The multipliers of the power of ten that make up a step, in order of preference
+     */
+    private static final double[] STEPS = {1, 5, 2, 2.5, 4, 3, 1.5, 6, 8};
+    private static final double EPSILON = 1e-9;
+
+    private final int minIntervals;
+    private final int maxIntervals;
+    private final boolean includeZero;
+
+    private boolean computed;
+    private double lastLow;
+    private double lastHigh;
+    private int version;
+
+    private double min;
+    private double max;
+    private double step;
+    private int intervals;
+
+    /**
+     * Creates a scale whose range always includes zero, which is what a graph measured from its
+     * bottom requires
+     */
+    public NiceScale(int minIntervals, int maxIntervals) {
+        this(minIntervals, maxIntervals, true);
+    }
+
+    public NiceScale(int minIntervals, int maxIntervals, boolean includeZero) {
+        if (minIntervals < 1 || maxIntervals < minIntervals) {
+            throw new IllegalArgumentException("Invalid number of intervals: " + minIntervals + ".." + maxIntervals);
+        }
+        this.minIntervals = minIntervals;
+        this.maxIntervals = maxIntervals;
+        this.includeZero = includeZero;
+    }
+
+    /**
+     * Computes the axis for the values between low and high.
+     *
+     * @return true if the axis changed from the previous computation
+     */
+    public boolean compute(double low, double high) {
+        if (computed && Double.compare(low, lastLow) == 0 && Double.compare(high, lastHigh) == 0) {
+            return false;
+        }
+        computed = true;
+        lastLow = low;
+        lastHigh = high;
+
+        if (Double.isNaN(low) || Double.isInfinite(low)) low = 0;
+        if (Double.isNaN(high) || Double.isInfinite(high)) high = 0;
+        if (low > high) {
+            final double t = low;
+            low = high;
+            high = t;
+        }
+        if (includeZero) {
+            low = Math.min(low, 0);
+            high = Math.max(high, 0);
+        }
+        if (high - low <= 0) {
+            //a single value, pad it so that it sits within the axis
+            final double pad = high == 0 ? 1 : Math.abs(high) * .5;
+            if (includeZero && high >= 0) high += pad;
+            else if (includeZero) low -= pad;
+            else {
+                low -= pad;
+                high += pad;
+            }
+        }
+
+        final double previousMin = min, previousMax = max, previousStep = step;
+        double bestSpan = Double.MAX_VALUE;
+        int bestPreference = Integer.MAX_VALUE;
+        for (int n = minIntervals; n <= maxIntervals; n++) {
+            final double raw = (high - low) / n;
+            final double base = Math.pow(10, Math.floor(Math.log10(raw)));
+            //the smallest sufficient step is within the raw step's decade or the next one
+            for (int decade = 0; decade < 2; decade++) {
+                final double magnitude = decade == 0 ? base : base * 10;
+                for (int preference = 0; preference < STEPS.length; preference++) {
+                    final double s = STEPS[preference] * magnitude;
+                    if (s < raw * (1 - EPSILON)) continue;
+
+                    final double first = Math.floor(low / s + EPSILON) * s;
+                    final double last = first + n * s;
+                    if (last < high - Math.abs(high) * EPSILON) continue;
+
+                    final double span = last - first;
+                    if (span < bestSpan * (1 - EPSILON)
+                            || (span <= bestSpan * (1 + EPSILON) && preference < bestPreference)) {
+                        bestSpan = span;
+                        bestPreference = preference;
+                        min = first;
+                        max = last;
+                        step = s;
+                        intervals = n;
+                    }
+                }
+            }
+        }
+
+        final boolean changed = min != previousMin || max != previousMax || step != previousStep;
+        if (changed) version++;
+        return changed;
+    }
+
+    /**
+     * @return the bottom of the axis
+     */
+    public float min() {
+        return (float) min;
+    }
+
+    /**
+     * @return the top of the axis
+     */
+    public float max() {
+        return (float) max;
+    }
+
+    public float range() {
+        return (float) (max - min);
+    }
+
+    /**
+     * @return the difference between two consecutive ticks
+     */
+    public float step() {
+        return (float) step;
+    }
+
+    /**
+     * @return the number of intervals between the ticks i.e. the number of ticks less one
+     */
+    public int intervals() {
+        return intervals;
+    }
+
+    /**
+     * @return the value of the i-th tick counting from the bottom of the axis
+     */
+    public float tick(int i) {
+        return (float) (min + i * step);
+    }
+
+    /**
+     * @return the index of the tick whose value is zero or -1 if zero isn't on the axis
+     */
+    public int zero() {
+        if (min > 0 || max < 0) return -1;
+        return (int) Math.round(-min / step);
+    }
+
+    /**
+     * @return a value that changes whenever the computed axis changes
+     */
+    public int version() {
+        return version;
+    }
+}
@@ -0,0 +1,126 @@
+package com.wira.graph.core;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Lowers the quality a view draws at while its frames take longer than a budget and raises it
+ * again once the view is idle. The draw times are averaged over a rolling window of frames. The
+ * quality is lowered by one level each time a full window is over the budget, the window is then
+ * started afresh so that every level is measured on its own frames.
+ */
+public class QualityController {
+    /**
+     * Everything is drawn as it's styled
+     */
+    public static final int QUALITY_HIGH = 0;
+    /**
+     * The lines are decimated to fewer points
+     */
+    public static final int QUALITY_REDUCED_DETAIL = 1;
+    /**
+     * The areas of the plots that aren't selected are filled with a flat colour, not a gradient
+     */
+    public static final int QUALITY_FLAT_AREAS = 2;
+    /**
+     * The plots aren't anti-aliased while they're being touched, the tooltip is a plain box
+     * without a shadow and the crosshair isn't dashed
+     */
+    public static final int QUALITY_LOW = 3;
+
+    private final long[] window;
+    private int count;
+    private int next;
+    private long total;
+    private long budgetNanos;
+    private int quality = QUALITY_HIGH;
+    @Nullable
+    private Listener listener;
+
+    /**
+     * @param budgetNanos the longest a frame may take to draw on average
+     * @param frames      the number of frames the draw time is averaged over
+     */
+    public QualityController(long budgetNanos, int frames) {
+        if (frames <= 0) {
+            throw new IllegalArgumentException("Invalid window: " + frames);
+        }
+        setBudget(budgetNanos);
+        window = new long[frames];
+    }
+
+    public void setBudget(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Invalid frame budget: " + budgetNanos);
+        }
+        this.budgetNanos = budgetNanos;
+    }
+
+    public long budget() {
+        return budgetNanos;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @return one of {@link #QUALITY_HIGH}, {@link #QUALITY_REDUCED_DETAIL},
+     * {@link #QUALITY_FLAT_AREAS} or {@link #QUALITY_LOW}
+     */
+    public int quality() {
+        return quality;
+    }
+
+    /**
+     * Records the time a frame took to draw
+     *
+     * @return true if the quality has been lowered
+     */
+    public boolean onFrame(long drawNanos) {
+        if (count == window.length) total -= window[next];
+        else count++;
+        window[next] = drawNanos;
+        total += drawNanos;
+        next = (next + 1) % window.length;
+
+        if (count < window.length || total <= budgetNanos * count || quality == QUALITY_LOW) {
+            return false;
+        }
+        change(quality + 1);
+        return true;
+    }
+
+    /**
+     * Notifies that the view hasn't drawn anything for a while
+     *
+     * @return true if the quality has been raised
+     */
+    public boolean onIdle() {
+        if (quality == QUALITY_HIGH) return false;
+        change(quality - 1);
+        return true;
+    }
+
+    /**
+     * @return the average draw time of the frames in the window
+     */
+    public float averageMillis() {
+        return count == 0 ? 0 : total / (count * 1e6f);
+    }
+
+    private void change(int quality) {
+        final int from = this.quality;
+        this.quality = quality;
+        count = next = 0;
+        total = 0;
+        if (listener != null) listener.onQualityChanged(from, quality);
+    }
+
+    public interface Listener {
+        /**
+         * @param from the quality before the change
+         * @param to   the quality after the change
+         */
+        void onQualityChanged(int from, int to);
+    }
+}
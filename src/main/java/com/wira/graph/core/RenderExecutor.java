@@ -0,0 +1,45 @@
+package com.wira.graph.core;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool of background threads that the views of this library render off-screen content on.
+ * There's one pool for the whole process and it's created the first time it's needed.
+ */
+public final class RenderExecutor {
+    private static volatile ExecutorService executor;
+
+    private RenderExecutor() {
+    }
+
+    @NonNull
+    public static ExecutorService get() {
+        ExecutorService e = executor;
+        if (e == null) {
+            synchronized (RenderExecutor.class) {
+                e = executor;
+                if (e == null) {
+                    //one core is left for the UI and the render threads
+                    final int threads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+                    final AtomicInteger count = new AtomicInteger();
+                    e = Executors.newFixedThreadPool(threads, runnable -> {
+                        final Thread thread = new Thread(() -> {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }, "GraphRender-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    executor = e;
+                }
+            }
+        }
+        return e;
+    }
+}
@@ -0,0 +1,76 @@
+package com.wira.graph.core;
+
+/**
+ * Counts how the touch events of a scrub are coalesced into frames and how long it takes for the
+ * latest event to be drawn. The latency is measured from the time of the event to the start of
+ * the frame that draws it, the display adds its own latency on top of that.
+ */
+public class ScrubMetrics {
+    private long events;
+    private long frames;
+    private long lookups;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    public void reset() {
+        events = frames = lookups = 0;
+        totalLatencyNanos = maxLatencyNanos = 0;
+    }
+
+    public void onEvent() {
+        events++;
+    }
+
+    public void onLookup() {
+        lookups++;
+    }
+
+    /**
+     * @param latencyNanos the time from the latest event to the start of the frame
+     */
+    public void onFrame(long latencyNanos) {
+        frames++;
+        if (latencyNanos < 0) latencyNanos = 0;
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    public long events() {
+        return events;
+    }
+
+    public long frames() {
+        return frames;
+    }
+
+    public long lookups() {
+        return lookups;
+    }
+
+    public float eventsPerFrame() {
+        return frames == 0 ? 0 : (float) events / frames;
+    }
+
+    public float lookupsPerFrame() {
+        return frames == 0 ? 0 : (float) lookups / frames;
+    }
+
+    public float averageLatencyMillis() {
+        return frames == 0 ? 0 : totalLatencyNanos / (frames * 1e6f);
+    }
+
+    public float maxLatencyMillis() {
+        return maxLatencyNanos / 1e6f;
+    }
+
+    @Override
+    public String toString() {
+        return "ScrubMetrics{" +
+                "events=" + events +
+                ", frames=" + frames +
+                ", lookupsPerFrame=" + lookupsPerFrame() +
+                ", averageLatencyMillis=" + averageLatencyMillis() +
+                ", maxLatencyMillis=" + maxLatencyMillis() +
+                '}';
+    }
+}
@@ -0,0 +1,118 @@
+package com.wira.graph.core;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.util.AttributeSet;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the styled attributes resolved by a view among all the views inflated with the same
+ * theme, default style and attributes, e.g. the charts of the items of a list, so that they're
+ * only resolved once.
+ * <p>
+ * The styles are held for as long as their theme is, a theme that is modified after views have
+ * been inflated with it keeps returning the styles resolved before the change. Styles are
+ * expected to be immutable since they're shared across views. The cache is thread safe as views
+ * may be inflated off the main thread.
+ * </p>
+ *
+ * @param <T> the type of the resolved style
+ */
+public class StyleCache<T> {
+    private final Map<Resources.Theme, Map<Key, T>> styles = new WeakHashMap<>();
+
+    /**
+     * @param resolve resolves the style when it isn't cached
+     */
+    @NonNull
+    public synchronized T get(@NonNull Context context, @Nullable AttributeSet attrs,
+                              int defStyleAttr, @NonNull Supplier<T> resolve) {
+        Map<Key, T> themed = styles.get(context.getTheme());
+        if (themed == null) {
+            themed = new HashMap<>();
+            styles.put(context.getTheme(), themed);
+        }
+
+        final Key key = new Key(context.getResources().getConfiguration(), attrs, defStyleAttr);
+        T style = themed.get(key);
+        if (style == null) {
+            style = resolve.get();
+            themed.put(key, style);
+        }
+        return style;
+    }
+
+    public synchronized void clear() {
+        styles.clear();
+    }
+
+    /**
+     * Identifies a set of attributes by their names and values. Attributes referring to
+     * resources are identified by the ids of the resources, which is why the configuration is
+     * included.
+     */
+    private static final class Key {
+        private final int defStyleAttr;
+        private final int style;
+        private final int densityDpi;
+        private final float fontScale;
+        private final int uiMode;
+        private final int[] names;
+        private final String[] values;
+        private final int hash;
+
+        Key(@NonNull Configuration configuration, @Nullable AttributeSet attrs, int defStyleAttr) {
+            this.defStyleAttr = defStyleAttr;
+            densityDpi = configuration.densityDpi;
+            fontScale = configuration.fontScale;
+            uiMode = configuration.uiMode;
+
+            final int count = attrs == null ? 0 : attrs.getAttributeCount();
+            style = attrs == null ? 0 : attrs.getStyleAttribute();
+            names = new int[count];
+            values = new String[count];
+            for (int i = 0; i < count; i++) {
+                names[i] = attrs.getAttributeNameResource(i);
+                values[i] = attrs.getAttributeValue(i);
+            }
+
+            int h = defStyleAttr;
+            h = 31 * h + style;
+            h = 31 * h + densityDpi;
+            h = 31 * h + Float.floatToIntBits(fontScale);
+            h = 31 * h + uiMode;
+            h = 31 * h + Arrays.hashCode(names);
+            h = 31 * h + Arrays.hashCode(values);
+            hash = h;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            final Key key = (Key) o;
+            return hash == key.hash
+                    && defStyleAttr == key.defStyleAttr
+                    && style == key.style
+                    && densityDpi == key.densityDpi
+                    && Float.compare(fontScale, key.fontScale) == 0
+                    && uiMode == key.uiMode
+                    && Arrays.equals(names, key.names)
+                    && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
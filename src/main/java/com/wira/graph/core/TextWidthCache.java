@@ -0,0 +1,46 @@
+package com.wira.graph.core;
+
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+import androidx.annotation.NonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers the widths of the strings measured with a {@link Paint} so that each string is only
+ * measured once for as long as the paint's text size and typeface remain the same.
+ */
+public class TextWidthCache {
+    private static final int MAX_ENTRIES = 512;
+
+    private final Paint paint;
+    private final Map<String, Float> widths = new HashMap<>();
+    private float textSize;
+    private Typeface typeface;
+
+    public TextWidthCache(@NonNull Paint paint) {
+        this.paint = paint;
+    }
+
+    public float measure(@NonNull String text) {
+        if (paint.getTextSize() != textSize || paint.getTypeface() != typeface) {
+            clear();
+            textSize = paint.getTextSize();
+            typeface = paint.getTypeface();
+        }
+
+        Float width = widths.get(text);
+        if (width == null) {
+            if (widths.size() >= MAX_ENTRIES) widths.clear();
+            width = paint.measureText(text);
+            widths.put(text, width);
+        }
+        return width;
+    }
+
+    public void clear() {
+        widths.clear();
+    }
+}
@@ -0,0 +1,92 @@
+package com.wira.graph.core;
+
+/**
+ * A running summary of a series that's used to decide whether the series is on an upward or a
+ * downward trend. Points are folded in one at a time, so appending to a series never rescans the
+ * points that have already been seen.
+ */
+public class TrendStatistics {
+    private int count;
+    private double sumX;
+    private double sumY;
+    private double sumXX;
+    private double sumXY;
+
+    private float firstX;
+    private float firstY;
+    private float lastX;
+    private float lastY;
+
+    public void reset() {
+        count = 0;
+        sumX = sumY = sumXX = sumXY = 0;
+        firstX = firstY = lastX = lastY = 0;
+    }
+
+    /**
+     * Folds a point into the summary. The points need not arrive in order of x, the first and the
+     * last points are the ones with the smallest and the largest x respectively.
+     */
+    public void add(float x, float y) {
+        if (count == 0 || x < firstX) {
+            firstX = x;
+            firstY = y;
+        }
+        if (count == 0 || x >= lastX) {
+            lastX = x;
+            lastY = y;
+        }
+
+        count++;
+        sumX += x;
+        sumY += y;
+        sumXX += (double) x * x;
+        sumXY += (double) x * y;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public float mean() {
+        return count == 0 ? 0 : (float) (sumY / count);
+    }
+
+    public float first() {
+        return firstY;
+    }
+
+    public float last() {
+        return lastY;
+    }
+
+    /**
+     * @return the difference between the last and the first value of the series
+     */
+    public float delta() {
+        return lastY - firstY;
+    }
+
+    /**
+     * @return the change from the first to the last value as a percentage of the first value or
+     * {@link Float#NaN} if the first value is zero
+     */
+    public float percentageChange() {
+        if (firstY == 0) return Float.NaN;
+        return delta() / Math.abs(firstY) * 100;
+    }
+
+    /**
+     * @return the slope of the least-squares line through the series, zero if it can't be fitted
+     */
+    public float slope() {
+        if (count < 2) return 0;
+        final double denominator = count * sumXX - sumX * sumX;
+        if (denominator == 0) return 0;
+        return (float) ((count * sumXY - sumX * sumY) / denominator);
+    }
+
+    public boolean isRising() {
+        return slope() >= 0;
+    }
+}
@@ -0,0 +1,90 @@
+package com.wira.graph.core;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Draws lines and the areas under them from arrays of points rather than from paths. The line is
+ * emitted as segments for {@link Canvas#drawLines(float[], int, int, Paint)} and the area as a
+ * triangle strip for {@link Canvas#drawVertices} whose vertices fade out towards the bottom, which
+ * replaces a {@link android.graphics.LinearGradient}. The buffers are reused from one draw to the
+ * next.
+ */
+public class VertexRenderer {
+    //The alpha of the area at its top, its middle and its bottom
+    private static final int TOP_ALPHA = 103;
+    private static final int MIDDLE_ALPHA = 50;
+    private static final int BOTTOM_ALPHA = 20;
+
+    private float[] segments = new float[0];
+    private float[] vertices = new float[0];
+    private int[] colors = new int[0];
+
+    /**
+     * Draws the line through the points
+     *
+     * @param points interleaved x and y values
+     * @param count  the number of points
+     */
+    public void drawLine(@NonNull Canvas c, @NonNull float[] points, int count, @NonNull Paint paint) {
+        if (count < 2) return;
+
+        final int length = 4 * (count - 1);
+        if (segments.length < length) segments = new float[length];
+        for (int i = 0, j = 0; i < count - 1; i++) {
+            segments[j++] = points[2 * i];
+            segments[j++] = points[2 * i + 1];
+            segments[j++] = points[2 * i + 2];
+            segments[j++] = points[2 * i + 3];
+        }
+        c.drawLines(segments, 0, length, paint);
+    }
+
+    /**
+     * Draws the area between the line through the points and the baseline
+     *
+     * @param points   interleaved x and y values
+     * @param count    the number of points
+     * @param top      the y value where the area is the most opaque
+     * @param baseline the y value the area is filled down to and where it's the most transparent
+     * @param color    the color of the area, its alpha is ignored
+     */
+    public void drawArea(@NonNull Canvas c, @NonNull float[] points, int count, float top, float baseline,
+                         int color, @NonNull Paint paint) {
+        if (count < 2) return;
+
+        final int length = 4 * count;
+        if (vertices.length < length) {
+            vertices = new float[length];
+            colors = new int[2 * count];
+        }
+        final int rgb = color & 0xFFFFFF;
+        final int bottom = BOTTOM_ALPHA << 24 | rgb;
+        final float height = baseline - top;
+        for (int i = 0; i < count; i++) {
+            final float x = points[2 * i], y = points[2 * i + 1];
+            vertices[4 * i] = x;
+            vertices[4 * i + 1] = y;
+            vertices[4 * i + 2] = x;
+            vertices[4 * i + 3] = baseline;
+
+            colors[2 * i] = alpha(height == 0 ? 1 : (y - top) / height) << 24 | rgb;
+            colors[2 * i + 1] = bottom;
+        }
+        paint.setShader(null);
+        c.drawVertices(Canvas.VertexMode.TRIANGLE_STRIP, length, vertices, 0,
+                null, 0, colors, 0, null, 0, 0, paint);
+    }
+
+    /**
+     * @param fraction how far down from the top the vertex is, between 0 and 1
+     */
+    private static int alpha(float fraction) {
+        if (fraction <= 0) return TOP_ALPHA;
+        if (fraction >= 1) return BOTTOM_ALPHA;
+        if (fraction < .5f) return Math.round(TOP_ALPHA + (MIDDLE_ALPHA - TOP_ALPHA) * fraction * 2);
+        return Math.round(MIDDLE_ALPHA + (BOTTOM_ALPHA - MIDDLE_ALPHA) * (fraction - .5f) * 2);
+    }
+}
@@ -0,0 +1,259 @@
+package com.wira.graph.core;
+
+import androidx.annotation.NonNull;
+
+import com.wira.core.period.ChronoUnit;
+import com.wira.core.period.Period;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Generates the ticks of the x-axis of a graph whose x values are the indices of a {@link Period}.
+ * <p>
+ * The ticks are aligned to the calendar, i.e. they fall on the start of an hour, a day, a week, a
+ * month or a year. The finest alignment whose labels fit the width is picked, after which the
+ * labels that'd still overlap are dropped in a single sweep from left to right. Each candidate
+ * label is measured once through a {@link TextWidthCache}.
+ * </p>
+ * The ticks are only recomputed when the period, the visible range or the width changes.
+ */
+public class XAxisTicks {
+    private static final int HOUR = 0;
+    private static final int DAY = 1;
+    private static final int WEEK = 2;
+    private static final int MONTH = 3;
+    private static final int YEAR = 4;
+
+    //The levels of alignment from the finest to the coarsest
+    private static final int[] UNITS = {HOUR, HOUR, HOUR, HOUR, HOUR, DAY, DAY, WEEK, MONTH, MONTH, MONTH, YEAR, YEAR, YEAR, YEAR};
+    private static final int[] STRIDES = {1, 2, 3, 6, 12, 1, 2, 1, 1, 3, 6, 1, 2, 5, 10};
+    //The level used to label the first index when none of the indices is aligned i.e. a day
+    private static final int FALLBACK = 5;
+
+    private final TextWidthCache widths;
+    private final float gap;
+
+    //The calendar fields of each of the period's indices within the range
+    private final Calendar calendar = Calendar.getInstance();
+    private Period fieldsPeriod;
+    private int first;
+    private int count;
+    private int[] hours = new int[0];
+    private int[] days = new int[0];
+    private int[] daysOfMonth = new int[0];
+    private int[] daysOfWeek = new int[0];
+    private int[] months = new int[0];
+    private int[] years = new int[0];
+
+    private Locale locale;
+    private DateFormat time;
+    private DateFormat day;
+    private DateFormat weekDay;
+    private DateFormat month;
+    private DateFormat year;
+
+    private Period period;
+    private float minx = Float.NaN;
+    private float maxx = Float.NaN;
+    private float width = Float.NaN;
+
+    private float[] positions = new float[8];
+    private String[] labels = new String[8];
+    private int size;
+
+    /**
+     * @param widths measures the labels with the paint they're drawn with
+     * @param gap    the least space between two consecutive labels
+     */
+    public XAxisTicks(@NonNull TextWidthCache widths, float gap) {
+        this.widths = widths;
+        this.gap = gap;
+    }
+
+    /**
+     * Computes the ticks of the indices between minx and maxx which are drawn across the width.
+     * The labels are centered on their ticks and the ones that'd extend beyond {@code -overhang}
+     * or {@code width + overhang} are dropped.
+     *
+     * @return true if the ticks were recomputed
+     */
+    public boolean compute(@NonNull Period period, float minx, float maxx, float width, float overhang) {
+        if (period == this.period && minx == this.minx && maxx == this.maxx && width == this.width
+                && Locale.getDefault().equals(locale)) {
+            return false;
+        }
+        this.period = period;
+        this.minx = minx;
+        this.maxx = maxx;
+        this.width = width;
+        size = 0;
+
+        final int first = (int) Math.ceil(minx);
+        final int last = (int) Math.floor(maxx);
+        if (last < first || width <= 0) return true;
+        fields(period, first, last - first + 1);
+        formats();
+
+        final float range = maxx - minx;
+        final float scale = range == 0 ? 0 : width / range;
+        final float available = width + overhang * 2;
+
+        int level = -1, coarsest = -1;
+        for (int l = 0; l < UNITS.length; l++) {
+            int ticks = 0, sample = -1;
+            for (int i = 0; i < count; i++) {
+                if (isTick(l, i)) {
+                    if (sample < 0) sample = i;
+                    ticks++;
+                }
+            }
+            if (ticks == 0) continue;
+
+            coarsest = l;
+            final float labelWidth = widths.measure(label(l, sample));
+            if (ticks * (labelWidth + gap) <= available) {
+                level = l;
+                break;
+            }
+        }
+        if (level < 0) level = coarsest;
+
+        float right = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            if (level >= 0 ? !isTick(level, i) : i != 0) continue;
+
+            final String label = label(level < 0 ? FALLBACK : level, i);
+            final float half = widths.measure(label) * .5f;
+            final float x = range == 0 ? width * .5f : (first + i - minx) * scale;
+            if (x - half < -overhang || x + half > width + overhang) continue;
+            if (x - half < right + gap) continue;
+
+            add(x, label);
+            right = x + half;
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of ticks
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the distance of the i-th tick from the start of the width
+     */
+    public float position(int i) {
+        return positions[i];
+    }
+
+    @NonNull
+    public String label(int i) {
+        return labels[i];
+    }
+
+    private void add(float position, String label) {
+        if (size == positions.length) {
+            final float[] p = new float[size * 2];
+            final String[] l = new String[size * 2];
+            System.arraycopy(positions, 0, p, 0, size);
+            System.arraycopy(labels, 0, l, 0, size);
+            positions = p;
+            labels = l;
+        }
+        positions[size] = position;
+        labels[size++] = label;
+    }
+
+    private boolean isTick(int level, int i) {
+        final int stride = STRIDES[level];
+        switch (UNITS[level]) {
+            case HOUR:
+                return hours[i] % stride == 0 && (i == 0 ? isStart(HOUR) : hours[i] != hours[i - 1] || days[i] != days[i - 1]);
+            case DAY:
+                return (daysOfMonth[i] - 1) % stride == 0 && (i == 0 ? isStart(DAY) : days[i] != days[i - 1]);
+            case WEEK:
+                return daysOfWeek[i] == calendar.getFirstDayOfWeek() && (i == 0 ? isStart(DAY) : days[i] != days[i - 1]);
+            case MONTH:
+                return months[i] % stride == 0 && (i == 0 ? isStart(MONTH) : months[i] != months[i - 1] || years[i] != years[i - 1]);
+            default:
+                return years[i] % stride == 0 && (i == 0 ? isStart(YEAR) : years[i] != years[i - 1]);
+        }
+    }
+
+    /**
+     * @return true if the first index of the range falls on the start of the given unit
+     */
+    private boolean isStart(int unit) {
+        calendar.setTimeInMillis(period.time(first).getTime());
+        final boolean midnight = calendar.get(Calendar.HOUR_OF_DAY) == 0 && calendar.get(Calendar.MINUTE) == 0;
+        switch (unit) {
+            case HOUR:
+                return calendar.get(Calendar.MINUTE) == 0;
+            case DAY:
+                return midnight;
+            case MONTH:
+                return midnight && calendar.get(Calendar.DAY_OF_MONTH) == 1;
+            default:
+                return midnight && calendar.get(Calendar.DAY_OF_YEAR) == 1;
+        }
+    }
+
+    private void fields(@NonNull Period period, int first, int count) {
+        if (period == fieldsPeriod && first == this.first && count == this.count) return;
+        fieldsPeriod = period;
+        this.first = first;
+        this.count = count;
+
+        if (hours.length < count) {
+            hours = new int[count];
+            days = new int[count];
+            daysOfMonth = new int[count];
+            daysOfWeek = new int[count];
+            months = new int[count];
+            years = new int[count];
+        }
+        for (int i = 0; i < count; i++) {
+            calendar.setTimeInMillis(period.time(first + i).getTime());
+            hours[i] = calendar.get(Calendar.HOUR_OF_DAY);
+            days[i] = calendar.get(Calendar.DAY_OF_YEAR);
+            daysOfMonth[i] = calendar.get(Calendar.DAY_OF_MONTH);
+            daysOfWeek[i] = calendar.get(Calendar.DAY_OF_WEEK);
+            months[i] = calendar.get(Calendar.MONTH);
+            years[i] = calendar.get(Calendar.YEAR);
+        }
+    }
+
+    private void formats() {
+        final Locale locale = Locale.getDefault();
+        if (!locale.equals(this.locale)) {
+            this.locale = locale;
+            widths.clear();
+            time = DateFormat.getTimeInstance(DateFormat.SHORT);
+            day = new SimpleDateFormat("dd MMM", locale);
+            weekDay = new SimpleDateFormat("EEE", locale);
+            month = new SimpleDateFormat("MMM", locale);
+            year = new SimpleDateFormat("yyyy", locale);
+        }
+    }
+
+    @NonNull
+    private String label(int level, int i) {
+        final long time = period.time(first + i).getTime();
+        switch (UNITS[level]) {
+            case HOUR:
+                return this.time.format(time);
+            case DAY:
+            case WEEK:
+                return (period.unit == ChronoUnit.WEEK ? weekDay : day).format(time);
+            case MONTH:
+                return month.format(time);
+            default:
+                return year.format(time);
+        }
+    }
+}
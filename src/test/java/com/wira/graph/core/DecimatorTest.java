@@ -0,0 +1,57 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+public class DecimatorTest {
+
+    @Test
+    public void testWhetherSmallLinesAreLeftAsIs() {
+        float[] points = {0, 1, 1, 5, 2, 3};
+        float[] out = new float[Decimator.capacity(3, 100)];
+        Truth.assertThat(Decimator.decimate(points, 3, 0, 2, 100, out)).isEqualTo(3);
+        Truth.assertThat(out).usingExactEquality().containsExactly(points).inOrder();
+    }
+
+    @Test
+    public void testWhetherTheExtremesOfEachBucketAreKeptInOrder() {
+        final int count = 100_000, buckets = 100;
+        float[] points = new float[2 * count];
+        Random random = new Random(3);
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = i;
+            points[2 * i + 1] = random.nextFloat();
+        }
+        float[] out = new float[Decimator.capacity(count, buckets)];
+        final int n = Decimator.decimate(points, count, 0, count, buckets, out);
+
+        Truth.assertThat(n).isAtMost(4 * buckets);
+        //the first and the last points are kept
+        Truth.assertThat(out[0]).isEqualTo(0f);
+        Truth.assertThat(out[2 * n - 2]).isEqualTo(count - 1f);
+        for (int i = 1; i < n; i++) {
+            Truth.assertThat(out[2 * i]).isGreaterThan(out[2 * i - 2]);
+        }
+
+        //the extremes of every bucket survive
+        final int perBucket = count / buckets;
+        for (int b = 0; b < buckets; b++) {
+            float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+            for (int i = b * perBucket; i < (b + 1) * perBucket; i++) {
+                min = Math.min(min, points[2 * i + 1]);
+                max = Math.max(max, points[2 * i + 1]);
+            }
+            boolean hasMin = false, hasMax = false;
+            for (int i = 0; i < n; i++) {
+                if (out[2 * i] < b * perBucket || out[2 * i] >= (b + 1) * perBucket) continue;
+                hasMin |= out[2 * i + 1] == min;
+                hasMax |= out[2 * i + 1] == max;
+            }
+            Truth.assertThat(hasMin).isTrue();
+            Truth.assertThat(hasMax).isTrue();
+        }
+    }
+}
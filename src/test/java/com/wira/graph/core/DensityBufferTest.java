@@ -0,0 +1,54 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+public class DensityBufferTest {
+
+    @Test
+    public void testWhetherEachStepOfALineHasACoverageOfOne() {
+        DensityBuffer buffer = new DensityBuffer(20, 20);
+        buffer.polyline(new float[]{0, 2.25f, 10, 2.25f}, 2);
+        for (int x = 0; x <= 10; x++) {
+            Truth.assertThat(buffer.get(x, 2)).isWithin(1e-5f).of(.75f);
+            Truth.assertThat(buffer.get(x, 3)).isWithin(1e-5f).of(.25f);
+        }
+        Truth.assertThat(buffer.get(11, 2)).isEqualTo(0f);
+
+        //a steep line is stepped along y
+        buffer.clear();
+        buffer.polyline(new float[]{5, 0, 5, 10}, 2);
+        for (int y = 0; y <= 10; y++) {
+            Truth.assertThat(buffer.get(5, y)).isWithin(1e-5f).of(1f);
+        }
+    }
+
+    @Test
+    public void testWhetherTheJointsOfAPolylineAreCountedOnce() {
+        DensityBuffer buffer = new DensityBuffer(20, 20);
+        buffer.polyline(new float[]{0, 0, 5, 5, 10, 0}, 3);
+        Truth.assertThat(buffer.get(5, 5)).isWithin(1e-5f).of(1f);
+    }
+
+    @Test
+    public void testWhetherBuffersAddUpAndAreToneMapped() {
+        DensityBuffer a = new DensityBuffer(10, 10), b = new DensityBuffer(10, 10);
+        a.polyline(new float[]{0, 1, 9, 1}, 2);
+        b.polyline(new float[]{0, 1, 9, 1}, 2);
+        b.polyline(new float[]{0, 5, 9, 5}, 2);
+        a.add(b);
+        Truth.assertThat(a.get(3, 1)).isWithin(1e-5f).of(2f);
+        Truth.assertThat(a.max()).isWithin(1e-5f).of(2f);
+
+        final int[] ramp = DensityBuffer.ramp(0x000000FF, 0xFFFF0000);
+        Truth.assertThat(ramp[0]).isEqualTo(0x000000FF);
+        Truth.assertThat(ramp[255]).isEqualTo(0xFFFF0000);
+
+        final int[] pixels = new int[100];
+        a.toneMap(ramp, pixels);
+        Truth.assertThat(pixels[10 + 3]).isEqualTo(ramp[255]);
+        Truth.assertThat(pixels[50 + 3]).isNotEqualTo(ramp[255]);
+        Truth.assertThat(pixels[0]).isEqualTo(0);
+    }
+}
@@ -0,0 +1,35 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+public class GeometryPoolTest {
+
+    @Test
+    public void testWhetherArraysAreReusedByTheirRoundedLength() {
+        GeometryPool pool = new GeometryPool(0, 2);
+        final float[] array = pool.floats(100);
+        Truth.assertThat(array.length).isEqualTo(128);
+
+        pool.release(array);
+        Truth.assertThat(pool.floats(65)).isSameInstanceAs(array);
+        //the pool is empty again
+        Truth.assertThat(pool.floats(65)).isNotSameInstanceAs(array);
+
+        //arrays that didn't come from the pool are ignored
+        pool.release(new float[100]);
+        Truth.assertThat(pool.floats(100).length).isEqualTo(128);
+        Truth.assertThat(pool.floats(0)).hasLength(0);
+    }
+
+    @Test
+    public void testWhetherThePoolIsBounded() {
+        GeometryPool pool = new GeometryPool(0, 1);
+        final float[] a = pool.floats(8), b = pool.floats(8);
+        pool.release(a);
+        pool.release(b);
+        Truth.assertThat(pool.floats(8)).isSameInstanceAs(a);
+        Truth.assertThat(pool.floats(8)).isNotSameInstanceAs(b);
+    }
+}
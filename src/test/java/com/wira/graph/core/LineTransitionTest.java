@@ -0,0 +1,47 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+public class LineTransitionTest {
+
+    @Test
+    public void testWhetherLinesAreResampledEvenly() {
+        float[] out = new float[5];
+        LineTransition.resample(new float[]{0, 0, 1, 4}, 2, out, 5, 0);
+        Truth.assertThat(out).usingTolerance(1e-5).containsExactly(0, 1, 2, 3, 4).inOrder();
+
+        //the ends are held beyond the line's extent
+        LineTransition.resample(new float[]{.25f, 2, .5f, 4}, 2, out, 5, 0);
+        Truth.assertThat(out).usingTolerance(1e-5).containsExactly(2, 2, 4, 4, 4).inOrder();
+
+        LineTransition.resample(null, 0, out, 5, 7);
+        Truth.assertThat(out).usingTolerance(1e-5).containsExactly(7, 7, 7, 7, 7).inOrder();
+    }
+
+    @Test
+    public void testWhetherFramesBlendTheEnds() {
+        LineTransition transition = new LineTransition();
+        transition.begin(3);
+        final int slot = transition.add();
+        transition.from(slot, 0, 1, new float[]{0, 0, 1, 0}, 2, 0);
+        transition.to(slot, 0, 3, new float[]{0, 10, 1, 10}, 2, 0);
+
+        float[] frame = new float[2 * transition.points()];
+        Truth.assertThat(transition.frame(slot, 0, 100, 50, 0, 10, frame)).isEqualTo(3);
+        Truth.assertThat(frame).usingTolerance(1e-4).containsExactly(0, 0, 50, 0, 100, 0).inOrder();
+
+        transition.frame(slot, .5f, 100, 50, 0, 10, frame);
+        Truth.assertThat(frame).usingTolerance(1e-4).containsExactly(0, -25, 50, -25, 100, -25).inOrder();
+        Truth.assertThat(transition.width(slot, .5f)).isWithin(1e-5f).of(2f);
+
+        //a line without an end shrinks to the baseline
+        final int gone = transition.add();
+        transition.from(gone, 0, 1, new float[]{0, 10, 1, 10}, 2, 0);
+        Truth.assertThat(transition.hasTo(gone)).isFalse();
+        transition.to(gone, 0, 1, null, 0, 0);
+        transition.frame(gone, 1, 100, 50, 0, 10, frame);
+        Truth.assertThat(frame[1]).isWithin(1e-5f).of(0f);
+    }
+}
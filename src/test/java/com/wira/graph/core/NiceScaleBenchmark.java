@@ -0,0 +1,70 @@
+package com.wira.graph.core;
+
+import static com.wira.graph.GraphView.label;
+import static com.wira.graph.GraphView.parse;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.Random;
+
+/**
+ * Compares the {@link NiceScale} against the string based maximum and guide count that it
+ * replaced. Run it on the JVM and read the printed timings.
+ */
+public class NiceScaleBenchmark {
+    private static final int WARM_UP = 50_000;
+    private static final int ITERATIONS = 500_000;
+
+    @Test
+    @Ignore("a benchmark, run it on its own")
+    public void benchmark() {
+        final float[] values = new float[1024];
+        Random random = new Random(7);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.pow(10, random.nextDouble() * 9) + 1;
+        }
+
+        run(values, WARM_UP);
+        System.out.println("==================NiceScale benchmark==================");
+        long start = System.nanoTime();
+        float sink = run(values, ITERATIONS);
+        long stringBased = System.nanoTime() - start;
+        System.out.println("string based: " + stringBased / ITERATIONS + "ns/op (" + sink + ")");
+
+        NiceScale scale = new NiceScale(2, 3);
+        compute(scale, values, WARM_UP);
+        start = System.nanoTime();
+        sink = compute(scale, values, ITERATIONS);
+        long nice = System.nanoTime() - start;
+        System.out.println("nice scale: " + nice / ITERATIONS + "ns/op (" + sink + ")");
+
+        //the same range is cached
+        start = System.nanoTime();
+        float cached = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            scale.compute(0, values[0]);
+            cached += scale.max();
+        }
+        System.out.println("nice scale cached: " + (System.nanoTime() - start) / ITERATIONS + "ns/op (" + cached + ")");
+    }
+
+    private static float run(float[] values, int iterations) {
+        float sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            final float maximum = NiceScaleTest.stringBasedMaxy(values[i & (values.length - 1)]);
+            final float max = parse(label(maximum));
+            sink += max % 3 == 0 ? 3 : 2;
+        }
+        return sink;
+    }
+
+    private static float compute(NiceScale scale, float[] values, int iterations) {
+        float sink = 0;
+        for (int i = 0; i < iterations; i++) {
+            scale.compute(0, values[i & (values.length - 1)]);
+            sink += scale.intervals();
+        }
+        return sink;
+    }
+}
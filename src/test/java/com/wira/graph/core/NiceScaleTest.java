@@ -0,0 +1,122 @@
+package com.wira.graph.core;
+
+import static java.lang.Math.ceil;
+import static java.lang.Math.pow;
+
+import com.google.common.truth.Truth;
+
+import com.wira.graph.GraphView;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class NiceScaleTest {
+    private final Random random = new Random(42);
+
+    @Test
+    public void testWhetherTheAxisContainsTheRangeForAnyMaximum() {
+        NiceScale scale = new NiceScale(2, 3);
+        for (int i = 0; i < 10_000; i++) {
+            float max = (float) pow(10, random.nextDouble() * 16 - 4);
+            scale.compute(0, max);
+
+            Truth.assertThat(scale.min()).isEqualTo(0f);
+            Truth.assertThat(scale.max()).isAtLeast(max);
+            Truth.assertThat(scale.intervals()).isIn(java.util.Arrays.asList(2, 3));
+            Truth.assertThat(scale.step() * scale.intervals()).isWithin(scale.max() * 1e-5f).of(scale.range());
+            //the values cover at least three quarters of the axis
+            Truth.assertThat(max / scale.max()).isAtLeast(.75f);
+        }
+    }
+
+    @Test
+    public void testWhetherTheAxisIsNeverMuchLooserThanTheStringBasedMaximum() {
+        NiceScale scale = new NiceScale(2, 3);
+        for (int i = 0; i < 10_000; i++) {
+            //the string based maximum only works for values between one and Integer.MAX_VALUE
+            float max = (float) pow(10, random.nextDouble() * 9) + 1;
+            scale.compute(0, max);
+            Truth.assertThat(scale.max()).isAtMost(stringBasedMaxy(max) * 1.3f);
+        }
+    }
+
+    @Test
+    public void testWhetherCommonMaximumsMatchTheStringBasedMaximum() {
+        NiceScale scale = new NiceScale(2, 3);
+        for (float max : new float[]{50, 91, 154, 280, 1102, 9_000}) {
+            scale.compute(0, max);
+            Truth.assertThat(scale.max()).isEqualTo(stringBasedMaxy(max));
+        }
+    }
+
+    @Test
+    public void testWhetherNegativeRangesHaveATickAtZero() {
+        NiceScale scale = new NiceScale(2, 3);
+        scale.compute(-37, 120);
+        Truth.assertThat(scale.min()).isAtMost(-37f);
+        Truth.assertThat(scale.max()).isAtLeast(120f);
+        Truth.assertThat(scale.zero()).isAtLeast(0);
+        Truth.assertThat(scale.tick(scale.zero())).isWithin(1e-4f).of(0f);
+
+        scale.compute(-5_000, -100);
+        Truth.assertThat(scale.max()).isEqualTo(0f);
+        Truth.assertThat(scale.min()).isAtMost(-5_000f);
+    }
+
+    @Test
+    public void testWhetherFractionalAndHugeRangesWork() {
+        NiceScale scale = new NiceScale(2, 3);
+        scale.compute(0, .37f);
+        Truth.assertThat(scale.max()).isWithin(1e-6f).of(.4f);
+        Truth.assertThat(scale.step()).isWithin(1e-6f).of(.2f);
+
+        scale.compute(0, 5e12f);
+        Truth.assertThat(scale.max()).isAtLeast(5e12f);
+        Truth.assertThat(scale.max()).isAtMost(6.5e12f);
+    }
+
+    @Test
+    public void testWhetherRepeatedRangesAreCached() {
+        NiceScale scale = new NiceScale(2, 3);
+        Truth.assertThat(scale.compute(0, 154)).isTrue();
+        final int version = scale.version();
+        Truth.assertThat(scale.compute(0, 154)).isFalse();
+        //a different range that results in the same axis doesn't change it either
+        Truth.assertThat(scale.compute(0, 155)).isFalse();
+        Truth.assertThat(scale.version()).isEqualTo(version);
+        Truth.assertThat(scale.compute(0, 0)).isTrue();
+        Truth.assertThat(scale.max()).isGreaterThan(0f);
+    }
+
+    @Test
+    public void testWhetherTheLabelsOfTheTicksAreDistinct() {
+        NiceScale scale = new NiceScale(2, 3);
+        for (int i = 0; i < 1_000; i++) {
+            float max = (float) pow(10, random.nextDouble() * 16 - 4);
+            scale.compute(0, max);
+
+            final Set<String> labels = new HashSet<>();
+            for (int j = 1; j <= scale.intervals(); j++) {
+                labels.add(GraphView.label(scale.tick(j), scale.step()));
+            }
+            Truth.assertThat(labels).hasSize(scale.intervals());
+        }
+    }
+
+    /**
+     * The maximum as was computed by {@code Plot.maxy()} before the {@link NiceScale}
+     */
+    static float stringBasedMaxy(float max) {
+        float maxy;
+        final int length = String.valueOf((int) Math.ceil(max)).length();
+        long multiplicand = (long) pow(10, length);
+        do {
+            multiplicand /= 10;
+            maxy = (float) (ceil(max / multiplicand) * multiplicand);
+        } while ((max / maxy) < 0.8);
+        return maxy;
+    }
+}
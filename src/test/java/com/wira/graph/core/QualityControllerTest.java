@@ -0,0 +1,57 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class QualityControllerTest {
+
+    @Test
+    public void testWhetherTheQualityIsLoweredOnceAWindowIsOverBudget() {
+        QualityController controller = new QualityController(10, 4);
+        for (int i = 0; i < 3; i++) {
+            Truth.assertThat(controller.onFrame(20)).isFalse();
+        }
+        //the window is full and its average is over the budget
+        Truth.assertThat(controller.onFrame(20)).isTrue();
+        Truth.assertThat(controller.quality()).isEqualTo(QualityController.QUALITY_REDUCED_DETAIL);
+
+        //the new level is measured on its own frames
+        Truth.assertThat(controller.onFrame(20)).isFalse();
+        Truth.assertThat(controller.averageMillis()).isEqualTo(20 / 1e6f);
+    }
+
+    @Test
+    public void testWhetherTheWindowRolls() {
+        QualityController controller = new QualityController(10, 4);
+        for (int i = 0; i < 4; i++) {
+            controller.onFrame(5);
+        }
+        //a single slow frame isn't enough once the window is full of fast ones
+        Truth.assertThat(controller.onFrame(20)).isFalse();
+        //the average of 5, 5, 20 and 20 is over the budget
+        Truth.assertThat(controller.onFrame(20)).isTrue();
+    }
+
+    @Test
+    public void testWhetherTheQualityIsBoundedAndRaisedWhenIdle() {
+        final List<Integer> changes = new ArrayList<>();
+        QualityController controller = new QualityController(1, 1);
+        controller.setListener((from, to) -> changes.add(to));
+
+        for (int i = 0; i < 5; i++) {
+            controller.onFrame(2);
+        }
+        Truth.assertThat(controller.quality()).isEqualTo(QualityController.QUALITY_LOW);
+
+        for (int i = 0; i < 3; i++) {
+            Truth.assertThat(controller.onIdle()).isTrue();
+        }
+        Truth.assertThat(controller.onIdle()).isFalse();
+        Truth.assertThat(controller.quality()).isEqualTo(QualityController.QUALITY_HIGH);
+        Truth.assertThat(changes).containsExactly(1, 2, 3, 2, 1, 0).inOrder();
+    }
+}
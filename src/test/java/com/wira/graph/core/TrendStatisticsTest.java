@@ -0,0 +1,50 @@
+package com.wira.graph.core;
+
+import com.google.common.truth.Truth;
+
+import org.junit.Test;
+
+public class TrendStatisticsTest {
+
+    @Test
+    public void testWhetherTheStatisticsOfARisingSeriesAreCorrect() {
+        TrendStatistics statistics = new TrendStatistics();
+        statistics.add(0, 10);
+        statistics.add(1, 20);
+        statistics.add(2, 30);
+
+        Truth.assertThat(statistics.count()).isEqualTo(3);
+        Truth.assertThat(statistics.mean()).isEqualTo(20f);
+        Truth.assertThat(statistics.delta()).isEqualTo(20f);
+        Truth.assertThat(statistics.percentageChange()).isEqualTo(200f);
+        Truth.assertThat(statistics.slope()).isEqualTo(10f);
+        Truth.assertThat(statistics.isRising()).isTrue();
+    }
+
+    @Test
+    public void testWhetherAppendingMatchesRecomputing() {
+        TrendStatistics appended = new TrendStatistics();
+        TrendStatistics recomputed = new TrendStatistics();
+        float[] ys = {50, 40, 45, 20, 10};
+        for (int i = 0; i < ys.length; i++) {
+            appended.add(i, ys[i]);
+        }
+        // the same points out of order
+        for (int i = ys.length - 1; i >= 0; i--) {
+            recomputed.add(i, ys[i]);
+        }
+
+        Truth.assertThat(appended.slope()).isWithin(1e-4f).of(recomputed.slope());
+        Truth.assertThat(appended.delta()).isEqualTo(recomputed.delta());
+        Truth.assertThat(appended.isRising()).isFalse();
+    }
+
+    @Test
+    public void testWhetherDegenerateSeriesDoNotProduceNaNSlopes() {
+        TrendStatistics statistics = new TrendStatistics();
+        Truth.assertThat(statistics.slope()).isEqualTo(0f);
+        statistics.add(3, 0);
+        Truth.assertThat(statistics.slope()).isEqualTo(0f);
+        Truth.assertThat(statistics.percentageChange()).isNaN();
+    }
+}